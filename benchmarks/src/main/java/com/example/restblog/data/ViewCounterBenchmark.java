@@ -0,0 +1,42 @@
+package com.example.restblog.data;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of PostViewCounter.increment with every available core counting views: hot is one very popular post,
+ * spread is 10k posts. Flushing is left out (the counter is never started); it runs once a second on its own thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ViewCounterBenchmark {
+
+    private static final int POSTS = 10_000;
+
+    private PostViewCounter counter;
+
+    @Setup
+    public void setUp() {
+        counter = new PostViewCounter(null, null, null, 1000);
+        for (long id = 0; id < POSTS; id++) {
+            counter.increment(id);
+        }
+    }
+
+    @Benchmark
+    public void hot() {
+        counter.increment(42);
+    }
+
+    @Benchmark
+    public void spread() {
+        counter.increment(ThreadLocalRandom.current().nextInt(POSTS));
+    }
+}
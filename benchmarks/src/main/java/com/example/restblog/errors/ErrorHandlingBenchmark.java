@@ -0,0 +1,65 @@
+package com.example.restblog.errors;
+
+import com.example.restblog.data.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a 404 costs: building EntityNotFoundException, the ApiError RestExceptionHandler makes from it, and
+ * serializing that. apiErrorJson is the plain ObjectMapper path through the LowerCaseClassNameResolver
+ * wrapper, kept as the baseline for the ApiErrorWriter templates the app actually uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorHandlingBenchmark {
+
+    private ObjectMapper mapper;
+    private ApiErrorWriter writer;
+    private ApiError notFound;
+
+    @Setup
+    public void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = new ApiErrorWriter(mapper);
+        notFound = new ApiError(HttpStatus.NOT_FOUND);
+        notFound.setMessage("User was not found for parameters {id=42}");
+    }
+
+    @Benchmark
+    public EntityNotFoundException entityNotFound() {
+        return new EntityNotFoundException(User.class, "id", "42");
+    }
+
+    @Benchmark
+    public ApiError apiError() {
+        ApiError apiError = new ApiError(HttpStatus.NOT_FOUND);
+        apiError.setMessage("User was not found for parameters {id=42}");
+        return apiError;
+    }
+
+    @Benchmark
+    public byte[] apiErrorJson() throws Exception {
+        return mapper.writeValueAsBytes(notFound);
+    }
+
+    @Benchmark
+    public byte[] apiErrorTemplate() {
+        return writer.toJson(notFound);
+    }
+
+    @Benchmark
+    public byte[] notFoundResponse() {
+        EntityNotFoundException ex = new EntityNotFoundException(User.class, "id", "42");
+        ApiError apiError = new ApiError(HttpStatus.NOT_FOUND);
+        apiError.setMessage(ex.getMessage());
+        return writer.toJson(apiError);
+    }
+}
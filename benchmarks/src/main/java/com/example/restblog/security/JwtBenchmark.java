@@ -0,0 +1,58 @@
+package com.example.restblog.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuing and reading a JWT through JwtAccessTokenConverter, as /oauth/token and the resource server do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtAccessTokenConverter converter;
+    private JwtTokenStore store;
+    private OAuth2Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        converter = new JwtAccessTokenConverter();
+        converter.afterPropertiesSet();
+        store = new JwtTokenStore(converter);
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "rest-blog-client", AuthorityUtils.createAuthorityList("USER"),
+                true, Set.of("read", "write"), Set.of("api"), null, null, null);
+        authentication = new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("user@test.com", null, AuthorityUtils.createAuthorityList("USER")));
+        token = encode().getValue();
+    }
+
+    @Benchmark
+    public OAuth2AccessToken encode() {
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("unused");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + Duration.ofHours(12).toMillis()));
+        return converter.enhance(accessToken, authentication);
+    }
+
+    @Benchmark
+    public OAuth2Authentication decode() {
+        return store.readAuthentication(token);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.restblog.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt cost per login at several strengths (security.bcrypt.strength), directly and through the
+ * BoundedPasswordEncoder hand-off the app actually uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({"4", "8", "10", "12"})
+    private int strength;
+
+    private BCryptPasswordEncoder bcrypt;
+    private BoundedPasswordEncoder bounded;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        bcrypt = new BCryptPasswordEncoder(strength);
+        bounded = new BoundedPasswordEncoder(bcrypt, 1, 16, false, new SimpleMeterRegistry());
+        hash = bcrypt.encode("correct horse battery staple");
+    }
+
+    @TearDown
+    public void tearDown() {
+        bounded.shutdown();
+    }
+
+    @Benchmark
+    public String encode() {
+        return bcrypt.encode("correct horse battery staple");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return bcrypt.matches("correct horse battery staple", hash);
+    }
+
+    @Benchmark
+    public boolean matchesOnPool() {
+        return bounded.matches("correct horse battery staple", hash);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.restblog.security;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of RateLimitFilter's token bucket: one client well within its limit (alone and with every core
+ * hitting the same bucket), 10k clients, and a client that is being turned away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private RateLimiter unlimited;
+    private RateLimiter exhausted;
+    private String[] clients;
+
+    @Setup
+    public void setUp() {
+        unlimited = new RateLimiter(1e9, 1_000_000, System::nanoTime);
+        exhausted = new RateLimiter(0.001, 1, System::nanoTime);
+        exhausted.tryAcquire("principal:greedy");
+        clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "address:10.0." + (i >> 8) + "." + (i & 0xff);
+        }
+    }
+
+    @Benchmark
+    public long allowed() {
+        return unlimited.tryAcquire("principal:user@test.com");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long allowedContended() {
+        return unlimited.tryAcquire("principal:user@test.com");
+    }
+
+    @Benchmark
+    public long allowedManyClients() {
+        return unlimited.tryAcquire(clients[ThreadLocalRandom.current().nextInt(CLIENTS)]);
+    }
+
+    @Benchmark
+    public long rejected() {
+        return exhausted.tryAcquire("principal:greedy");
+    }
+}
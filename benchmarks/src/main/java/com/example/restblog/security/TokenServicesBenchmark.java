@@ -0,0 +1,60 @@
+package com.example.restblog.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of resolving a bearer token on the resource server, with and without CachingJwtTokenServices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenServicesBenchmark {
+
+    private DefaultTokenServices uncached;
+    private CachingJwtTokenServices cached;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+        converter.afterPropertiesSet();
+        uncached = new DefaultTokenServices();
+        uncached.setTokenStore(new JwtTokenStore(converter));
+        cached = new CachingJwtTokenServices(uncached, 10_000, Duration.ofHours(1));
+
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "rest-blog-client", AuthorityUtils.createAuthorityList("USER"),
+                true, Set.of("read", "write"), Set.of("api"), null, null, null);
+        OAuth2Authentication authentication = new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("user@test.com", null, AuthorityUtils.createAuthorityList("USER")));
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("unused");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + Duration.ofHours(12).toMillis()));
+        token = converter.enhance(accessToken, authentication).getValue();
+    }
+
+    @Benchmark
+    public OAuth2Authentication verifyEveryRequest() {
+        return uncached.loadAuthentication(token);
+    }
+
+    @Benchmark
+    public OAuth2Authentication verifiedCache() {
+        return cached.loadAuthentication(token);
+    }
+}
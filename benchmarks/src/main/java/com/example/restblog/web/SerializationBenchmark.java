@@ -0,0 +1,53 @@
+package com.example.restblog.web;
+
+import com.example.restblog.data.Post;
+import com.example.restblog.data.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the listing responses, with an ObjectMapper configured the way Boot configures the app's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int size;
+
+    private ObjectMapper mapper;
+    private KeysetPage<Post> posts;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        users = new ArrayList<>();
+        List<Post> content = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            User user = new User(i, "user" + i + "@test.com", "user" + i, "$2a$10$hash", User.Role.USER, null, 0);
+            users.add(user);
+            content.add(new Post(i, "Post title " + i, "Post content ".repeat(40), user, 0));
+        }
+        posts = new KeysetPage<>(content, (long) size);
+    }
+
+    @Benchmark
+    public byte[] postsPage() throws Exception {
+        return mapper.writeValueAsBytes(posts);
+    }
+
+    @Benchmark
+    public byte[] users() throws Exception {
+        return mapper.writeValueAsBytes(users);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.restblog;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Latency distributions for the timers we care about and Hibernate statistics for HibernateMetrics. Everything is
+ * scraped from /actuator/prometheus; set management.server.port to keep it off the public port.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    // Prefixes of the timers that get p50/p95/p99 and Prometheus histogram buckets
+    private static final List<String> LATENCY_TIMERS = List.of(
+            "http.server.requests", "hikaricp.connections.acquire", "users.load", "password.");
+
+    @Bean
+    public MeterFilter latencyDistributions() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER || LATENCY_TIMERS.stream().noneMatch(id.getName()::startsWith)) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.95, 0.99)
+                        .percentilesHistogram(true)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateStatistics(@Value("${metrics.hibernate.statistics:true}") boolean enabled) {
+        return properties -> properties.put("hibernate.generate_statistics", enabled);
+    }
+}
@@ -2,8 +2,11 @@ package com.example.restblog;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableAsync;
 
-@SpringBootApplication
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class) // see ReactiveDataConfiguration
+@EnableAsync
 public class RestBlogApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,69 @@
+package com.example.restblog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in (threads.virtual.enabled=true) mode that runs Tomcat request handling, @Async methods and async MVC
+ * handlers on virtual threads. Virtual threads need a Java 21 runtime; on anything older the default platform
+ * pools are kept and a warning is logged.
+ *
+ * A virtual thread doing JDBC inside the MySQL driver's synchronized blocks pins its carrier, so at most
+ * spring.datasource.hikari.maximum-pool-size carriers can be pinned at once. Keep the pool below the core count
+ * (the scheduler's carrier count) or requests that don't touch the database will starve behind those that do.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return handler -> {
+            if (executor != null) {
+                handler.setExecutor(executor);
+            }
+        };
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncListenableTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return executor != null ? new TaskExecutorAdapter(executor) : builder.build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    // Looked up reflectively so the build can stay on a Java 17 baseline
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("Request handling and @Async running on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException ex) {
+            // NoSuchMethodException before 19, UnsupportedOperationException (wrapped) on 19/20 without --enable-preview
+            log.warn("threads.virtual.enabled is set but Java {} has no virtual threads, staying on platform threads",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+}
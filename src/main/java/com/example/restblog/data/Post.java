@@ -2,11 +2,18 @@ package com.example.restblog.data;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 
+// Updates only write the columns that changed, so retitling a post doesn't resend its content
 @Entity
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -14,8 +21,10 @@ import javax.validation.constraints.NotNull;
 @Table(name="posts")
 public class Post {
 
+    // Sequence ids (a posts_seq table on MySQL) instead of IDENTITY, so Hibernate can batch inserts.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_seq")
+    @SequenceGenerator(name = "posts_seq", sequenceName = "posts_seq", allocationSize = 50)
     @JsonIgnore
     private long id;
     @NotNull
@@ -23,8 +32,11 @@ public class Post {
     @NotNull
     private String content;
     @NotNull
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @ToString.Exclude
     private User user;
+    @Version
+    @JsonIgnore
+    private long version;
 
 }
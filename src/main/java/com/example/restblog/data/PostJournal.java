@@ -0,0 +1,354 @@
+package com.example.restblog.data;
+
+import com.example.restblog.errors.ServiceUnavailableException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.validation.ConstraintViolationException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of accepted posts in a fixed-size, memory-mapped file used as a ring. Records run from the
+ * head (the oldest post not yet in the database) to the tail; release() moves the head once a batch is committed
+ * and its space is reused.
+ *
+ * Record layout: int payload length, int CRC32 of the rest, long sequence number, then the payload (post id, author
+ * id and the UTF-8 title and content). On open the records from the head are read back until one is torn, out of
+ * sequence or left over from an earlier lap, and become pending again.
+ *
+ * Appends are group committed: a record is copied in under the lock, then the lock is dropped while it is forced.
+ * One appender forces everything written so far and the others wait for it rather than each forcing its own record.
+ * Entries only become pending once they are on disk; an append whose force fails is not handed to the writer.
+ *
+ * The file header holds a random journal id, so checkpoints of journals on different hosts don't collide, the
+ * head position and sequence number, and the size of the data area. Positions are taken modulo that size, so an
+ * existing journal keeps it whatever capacity it is reopened with; a new capacity applies to a new file.
+ */
+class PostJournal implements Closeable {
+
+    private static final int HEADER = 64;
+    private static final int RECORD_HEADER = 16;
+    private static final int MIN_PAYLOAD = 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long dataSize;
+    private final boolean force;
+
+    @Getter
+    private final long journalId;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition forced = lock.newCondition();
+
+    // Entries appended but not yet taken by the writer, in sequence order
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+
+    // Entries appended but not yet forced, in sequence order; they move to pending once they are on disk
+    private final ArrayDeque<Entry> unforced = new ArrayDeque<>();
+
+    private long head;
+    private long headSeq;
+    private long tail;
+    private long nextSeq;
+    // Everything before this position is on disk; a force of the records after it is under way while forcing
+    private long forcedTo;
+    private boolean forcing;
+
+    PostJournal(Path file, int capacity, boolean force) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(32);
+        channel.read(header, 0);
+        long id = header.getLong(0);
+        long storedDataSize = header.getLong(24);
+        // Journals written before the size was stored were never shrunk, so their file size is their size
+        long size = id == 0 ? capacity : storedDataSize != 0 ? HEADER + storedDataSize : channel.size();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.dataSize = size - HEADER;
+        this.force = force;
+        if (id == 0) {
+            id = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+            buffer.putLong(0, id);
+            buffer.putLong(16, 1);
+        }
+        if (storedDataSize == 0) {
+            buffer.putLong(24, dataSize);
+            writeHeader();
+        }
+        this.journalId = id;
+        this.head = buffer.getLong(8);
+        this.headSeq = buffer.getLong(16);
+        recover();
+    }
+
+    /**
+     * Durably appends a post with the id allocated for it and returns its sequence number. Rejected with a 503 while
+     * the journal is full and with a 400 if the post could never fit.
+     */
+    long append(long postId, String title, String content, long userId) {
+        byte[] titleBytes = title.getBytes(StandardCharsets.UTF_8);
+        byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
+        int length = MIN_PAYLOAD + titleBytes.length + contentBytes.length;
+        if (RECORD_HEADER + length > dataSize) {
+            throw new ConstraintViolationException("Post is too large to be accepted", new HashSet<>());
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.putInt(length).putInt(0).putLong(0)
+                .putLong(postId)
+                .putLong(userId)
+                .putInt(titleBytes.length).put(titleBytes)
+                .putInt(contentBytes.length).put(contentBytes);
+        lock.lock();
+        try {
+            if (tail + record.capacity() - head > dataSize) {
+                throw new ServiceUnavailableException("Post journal is full, try again shortly");
+            }
+            long seq = nextSeq++;
+            record.putLong(8, seq);
+            record.putInt(4, crc(record.array()));
+            put(tail, record.array());
+            tail += record.capacity();
+            Entry entry = new Entry(seq, tail, postId, userId, title, content);
+            if (!force) {
+                pending.add(entry);
+                notEmpty.signal();
+                return seq;
+            }
+            unforced.add(entry);
+            try {
+                awaitForced(tail);
+            } catch (RuntimeException ex) {
+                // Still unforced: only the appender that ran the failed force gets here, before anyone forces again
+                unforced.remove(entry);
+                throw ex;
+            }
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held; returns once everything up to end is on disk
+    private void awaitForced(long end) {
+        boolean interrupted = false;
+        while (forcedTo < end) {
+            if (forcing) {
+                try {
+                    forced.await();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+                continue;
+            }
+            forcing = true;
+            long from = forcedTo;
+            long to = tail;
+            lock.unlock();
+            try {
+                force(from, (int) Math.min(to - from, dataSize));
+            } finally {
+                lock.lock();
+                forcing = false;
+                forced.signalAll();
+            }
+            forcedTo = to;
+            while (!unforced.isEmpty() && unforced.peek().end <= forcedTo) {
+                pending.add(unforced.poll());
+            }
+            notEmpty.signal();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes up to max pending entries, waiting up to the timeout for the first one. Their space stays reserved
+     * until they are released.
+     */
+    List<Entry> take(int max, Duration timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = timeout.toNanos();
+            while (pending.isEmpty()) {
+                if (nanos <= 0) {
+                    return List.of();
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            List<Entry> batch = new ArrayList<>(Math.min(max, pending.size()));
+            while (batch.size() < max && !pending.isEmpty()) {
+                batch.add(pending.poll());
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees everything up to and including the given entry, which must be in the database by now.
+     */
+    void release(Entry last) {
+        lock.lock();
+        try {
+            if (last.seq < headSeq) {
+                return;
+            }
+            head = last.end;
+            headSeq = last.seq + 1;
+            buffer.putLong(8, head);
+            buffer.putLong(16, headSeq);
+            writeHeader();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops (and releases) pending entries up to the given sequence number, which a checkpoint says were applied
+     * before the journal was last closed. Later appends are numbered above it.
+     */
+    void skipApplied(long appliedSeq) {
+        lock.lock();
+        try {
+            Entry last = null;
+            while (!pending.isEmpty() && pending.peek().seq <= appliedSeq) {
+                last = pending.poll();
+            }
+            if (last != null) {
+                release(last);
+            }
+            if (nextSeq <= appliedSeq) {
+                // Nothing left in the journal, but the database is ahead of it: restart the numbering past it
+                nextSeq = appliedSeq + 1;
+                head = tail;
+                headSeq = nextSeq;
+                buffer.putLong(8, head);
+                buffer.putLong(16, headSeq);
+                writeHeader();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void recover() {
+        long position = head;
+        long seq = headSeq;
+        byte[] recordHeader = new byte[RECORD_HEADER];
+        while (position + RECORD_HEADER - head <= dataSize) {
+            ByteBuffer header = ByteBuffer.wrap(get(position, recordHeader));
+            int length = header.getInt(0);
+            if (length < MIN_PAYLOAD || position + RECORD_HEADER + length - head > dataSize || header.getLong(8) != seq) {
+                break;
+            }
+            byte[] record = get(position, new byte[RECORD_HEADER + length]);
+            if (crc(record) != header.getInt(4)) {
+                break; // torn write
+            }
+            position += record.length;
+            pending.add(decode(seq, position, ByteBuffer.wrap(record, RECORD_HEADER, length)));
+            seq++;
+        }
+        tail = position;
+        forcedTo = position;
+        nextSeq = seq;
+    }
+
+    private static Entry decode(long seq, long end, ByteBuffer payload) {
+        long postId = payload.getLong();
+        long userId = payload.getLong();
+        byte[] title = new byte[payload.getInt()];
+        payload.get(title);
+        byte[] content = new byte[payload.getInt()];
+        payload.get(content);
+        return new Entry(seq, end, postId, userId, new String(title, StandardCharsets.UTF_8), new String(content, StandardCharsets.UTF_8));
+    }
+
+    // CRC of everything after the length and checksum fields
+    private static int crc(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 8, record.length - 8);
+        return (int) crc.getValue();
+    }
+
+    private int offset(long position) {
+        return HEADER + (int) (position % dataSize);
+    }
+
+    private void put(long position, byte[] bytes) {
+        int offset = offset(position);
+        int first = (int) Math.min(bytes.length, HEADER + dataSize - offset);
+        buffer.put(offset, bytes, 0, first);
+        buffer.put(HEADER, bytes, first, bytes.length - first);
+    }
+
+    private byte[] get(long position, byte[] bytes) {
+        int offset = offset(position);
+        int first = (int) Math.min(bytes.length, HEADER + dataSize - offset);
+        buffer.get(offset, bytes, 0, first);
+        buffer.get(HEADER, bytes, first, bytes.length - first);
+        return bytes;
+    }
+
+    // Package-private so tests can fail it
+    void force(long position, int length) {
+        int offset = offset(position);
+        int first = (int) Math.min(length, HEADER + dataSize - offset);
+        buffer.force(offset, first);
+        if (first < length) {
+            buffer.force(HEADER, length - first);
+        }
+    }
+
+    private void writeHeader() {
+        if (force) {
+            buffer.force(0, HEADER);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static final class Entry {
+        private final long seq;
+        // Journal position just past this entry's record
+        private final long end;
+        private final long postId;
+        private final long userId;
+        private final String title;
+        private final String content;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.restblog.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Last post journal entry written to the database, updated in the same transaction as the posts themselves
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "post_journal_checkpoints")
+public class PostJournalCheckpoint {
+
+    @Id
+    private long journalId;
+    private long appliedSeq;
+
+}
@@ -0,0 +1,6 @@
+package com.example.restblog.data;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PostJournalCheckpointRepository extends JpaRepository<PostJournalCheckpoint, Long> {
+}
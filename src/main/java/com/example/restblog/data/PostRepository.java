@@ -1,7 +1,54 @@
 package com.example.restblog.data;
 
-import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
+
+    /**
+     * Keyset page of posts: everything after the given id, in id order.
+     * Callers pass a Pageable for page 0 only, so the query never needs an OFFSET.
+     * Authors are fetched in the same statement; Post.user itself stays lazy for everyone else.
+     */
+    @EntityGraph(attributePaths = "user")
+    Slice<Post> findByIdGreaterThanOrderByIdAsc(long after, Pageable pageable);
+
+    /**
+     * Keyset page of post summaries. Only the first excerptLength characters of content leave the database.
+     */
+    @Query("select p.id as id, p.title as title, u.username as author, substring(p.content, 1, :excerptLength) as excerpt " +
+            "from Post p join p.user u where p.id > :after order by p.id")
+    Slice<PostSummary> findSummariesByIdGreaterThan(@Param("after") long after, @Param("excerptLength") int excerptLength, Pageable pageable);
+
+    /**
+     * Every post with its author, read through a JDBC cursor rather than a List.
+     * Must be consumed (and closed) inside a transaction; with MySQL the datasource needs useCursorFetch=true
+     * for the fetch size to be honoured instead of buffering the whole result set in the driver.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select p from Post p join fetch p.user order by p.id")
+    Stream<Post> streamAllByOrderById();
+
+    /**
+     * Whether the post exists and was written by the user with this email; an authorization check that loads nothing.
+     */
+    boolean existsByIdAndUserEmail(long id, String email);
+
+    /**
+     * Versions of the keyset page after the given id, for the listings' ETags: the same index range as the page
+     * itself, without reading any content.
+     */
+    @Query("select p.id as id, p.version as postVersion, u.version as authorVersion from Post p join p.user u where p.id > :after order by p.id")
+    Slice<PostVersion> findVersionsByIdGreaterThan(@Param("after") long after, Pageable pageable);
 }
@@ -0,0 +1,25 @@
+package com.example.restblog.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Flat, read-only view of a post and its author's name for the R2DBC read path. Unlike Post it carries the id,
+ * so a streaming client can resume after the last row it received.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("posts")
+public class PostRow {
+
+    @Id
+    private long id;
+    private String title;
+    private String content;
+    private long userId;
+    private String author;
+}
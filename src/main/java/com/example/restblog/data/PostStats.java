@@ -0,0 +1,25 @@
+package com.example.restblog.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Persisted view count of a post. Written only by PostViewCounter's flush, with plain JDBC
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "post_stats")
+public class PostStats {
+
+    @Id
+    private long postId;
+    private long views;
+
+}
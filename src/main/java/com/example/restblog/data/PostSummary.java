@@ -0,0 +1,11 @@
+package com.example.restblog.data;
+
+/**
+ * Read-only listing view of a Post: no full content, just an excerpt cut by the database.
+ */
+public interface PostSummary {
+    Long getId();
+    String getTitle();
+    String getAuthor();
+    String getExcerpt();
+}
@@ -0,0 +1,10 @@
+package com.example.restblog.data;
+
+/**
+ * Id and versions of a listed post and its author; whatever changes what a listing shows of the post moves one of them.
+ */
+public interface PostVersion {
+    long getId();
+    long getPostVersion();
+    long getAuthorVersion();
+}
@@ -0,0 +1,159 @@
+package com.example.restblog.data;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-post view counts, counted in memory and added to post_stats every posts.views.flush-interval-ms and on
+ * shutdown. Counting is a map lookup and a LongAdder increment, which contending threads spread over separate
+ * cells, so no view waits on the database or on another view.
+ *
+ * Adders are never reset, so an increment racing a flush is simply picked up by the next one: each flush writes
+ * the difference from what the previous flush wrote. A failed flush is retried with the next. Counters of posts
+ * with no views since the last flush are dropped, and checked once more at the following flush for increments
+ * that were already under way.
+ *
+ * views() adds the unflushed views to the stored count. While a flush is committing it can briefly count a
+ * flushed view twice.
+ */
+@Slf4j
+@Component
+public class PostViewCounter {
+
+    private static final String ADD = "update post_stats set views = views + ? where post_id = ?";
+    private static final String INSERT = "insert into post_stats (post_id, views) values (?, ?)";
+
+    private final PostStatsRepository statsRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate writeTransaction;
+
+    private final long flushIntervalMillis;
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    // Dropped at the last flush; guarded by flush()
+    private Map<Long, Counter> retired = new LinkedHashMap<>();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "post-view-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PostViewCounter(PostStatsRepository statsRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           @Value("${posts.views.flush-interval-ms:1000}") long flushIntervalMillis) {
+        this.statsRepository = statsRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void increment(long postId) {
+        Counter counter = counters.get(postId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(postId, id -> new Counter());
+        }
+        counter.views.increment();
+    }
+
+    /**
+     * Stored plus not yet flushed views of a post.
+     */
+    public long views(long postId) {
+        Counter counter = counters.get(postId);
+        long pending = counter == null ? 0 : counter.views.sum() - counter.flushed;
+        return statsRepository.findById(postId).map(PostStats::getViews).orElse(0L) + pending;
+    }
+
+    /**
+     * Adds every counter's views since the last flush to post_stats in one transaction: a batch of updates, then a
+     * batch of inserts for posts that had no row yet.
+     */
+    public synchronized void flush() {
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        List<Counter> flushed = new ArrayList<>();
+        Map<Long, Counter> idle = new LinkedHashMap<>();
+        retired.forEach((postId, counter) -> collect(postId, counter, deltas, flushed));
+        counters.forEach((postId, counter) -> {
+            if (!collect(postId, counter, deltas, flushed) && counters.remove(postId, counter)) {
+                idle.put(postId, counter);
+            }
+        });
+        try {
+            if (!deltas.isEmpty()) {
+                writeTransaction.executeWithoutResult(status -> write(deltas));
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Flushing views of {} posts failed, retrying with the next flush", deltas.size(), ex);
+            retired.putAll(idle);
+            return;
+        }
+        flushed.forEach(counter -> counter.flushed = counter.collected);
+        retired = idle;
+    }
+
+    // Adds the counter's unflushed views to deltas; false if it has none
+    private static boolean collect(long postId, Counter counter, Map<Long, Long> deltas, List<Counter> flushed) {
+        long total = counter.views.sum();
+        if (total == counter.flushed) {
+            return false;
+        }
+        counter.collected = total;
+        flushed.add(counter);
+        deltas.merge(postId, total - counter.flushed, Long::sum);
+        return true;
+    }
+
+    private void write(Map<Long, Long> deltas) {
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        deltas.forEach((postId, delta) -> updates.add(new Object[]{delta, postId}));
+        int[] counts = jdbcTemplate.batchUpdate(ADD, updates);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                inserts.add(new Object[]{updates.get(i)[1], updates.get(i)[0]});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, inserts);
+        }
+    }
+
+    private static final class Counter {
+        final LongAdder views = new LongAdder();
+        // Total written by the last successful flush; only written under flush()
+        volatile long flushed;
+        // Total the flush in progress is writing
+        long collected;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.restblog.data;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accepted-write mode for post creation (posts.write-behind.enabled=true). submit() takes the post's id from
+ * posts_seq, which the pooled optimizer mostly hands out from memory, and appends the post to a local PostJournal, so
+ * a request waits for a write to a memory-mapped file rather than for a database commit. A single background thread
+ * drains the journal in batches, inserting each post under its journalled id in one transaction that also moves this
+ * journal's PostJournalCheckpoint. On startup the entries still in the journal are replayed and those the checkpoint
+ * covers (written just before a crash, say) are skipped. A post whose id is already taken was written before, so
+ * replay is idempotent even past the checkpoint.
+ *
+ * A batch that fails for a transient reason (database down, lock timeout) is retried until it succeeds. One that
+ * breaks a constraint is split up and the offending posts are logged and dropped.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "posts.write-behind.enabled", havingValue = "true")
+public class PostWriteBehind {
+
+    private static final Duration POLL = Duration.ofMillis(200);
+
+    private static final String INSERT = "insert into posts (id, title, content, user_id, version) values (?, ?, ?, ?, 0)";
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    private final IdentifierGenerator postIds;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PostJournalCheckpointRepository checkpoints;
+
+    private final TransactionTemplate writeTransaction;
+
+    private final PostJournal journal;
+
+    private final int batchSize;
+
+    private final long retryDelayMillis;
+
+    private final Thread writer = new Thread(this::run, "post-writer");
+
+    private volatile boolean running = true;
+
+    public PostWriteBehind(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate, PostJournalCheckpointRepository checkpoints,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${posts.write-behind.journal:post-journal.dat}") String journalFile,
+                           @Value("${posts.write-behind.journal-size-mb:64}") int journalSizeMb,
+                           @Value("${posts.write-behind.force-writes:true}") boolean forceWrites,
+                           @Value("${posts.write-behind.batch-size:500}") int batchSize,
+                           @Value("${posts.write-behind.retry-delay-ms:1000}") long retryDelayMillis) throws IOException {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.postIds = sessionFactory.getIdentifierGenerator(Post.class.getName());
+        this.jdbcTemplate = jdbcTemplate;
+        this.checkpoints = checkpoints;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        // A mapped buffer holds at most 2 GB
+        if (journalSizeMb < 1 || journalSizeMb >= 2048) {
+            throw new IllegalArgumentException("posts.write-behind.journal-size-mb must be between 1 and 2047, not " + journalSizeMb);
+        }
+        this.journal = new PostJournal(Path.of(journalFile), journalSizeMb << 20, forceWrites);
+        this.batchSize = Math.max(1, batchSize);
+        this.retryDelayMillis = retryDelayMillis;
+        Gauge.builder("posts.journal.pending", journal, PostJournal::pendingCount)
+                .description("Accepted posts not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        checkpoints.findById(journal.getJournalId()).ifPresent(checkpoint -> journal.skipApplied(checkpoint.getAppliedSeq()));
+        int replayed = journal.pendingCount();
+        if (replayed > 0) {
+            log.info("Replaying {} journalled posts", replayed);
+        }
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Journals a post for the given author and returns the id it will be inserted with once it is on disk. The
+     * caller has validated the post and checked the author exists.
+     */
+    public long submit(String title, String content, long userId) {
+        long postId = nextPostId();
+        journal.append(postId, title, content, userId);
+        return postId;
+    }
+
+    private long nextPostId() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return ((Number) postIds.generate((SharedSessionContractImplementor) session, null)).longValue();
+        }
+    }
+
+    /**
+     * Stops after the batch in hand. Whatever is still pending stays in the journal for the next start.
+     */
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        writer.join(Duration.ofSeconds(30).toMillis());
+        journal.close();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<PostJournal.Entry> batch = journal.take(batchSize, POLL);
+                if (!batch.isEmpty()) {
+                    apply(batch);
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Post writer failed", ex);
+            }
+        }
+    }
+
+    private void apply(List<PostJournal.Entry> batch) throws InterruptedException {
+        PostJournal.Entry last = batch.get(batch.size() - 1);
+        while (running) {
+            try {
+                write(batch, last);
+                journal.release(last);
+                return;
+            } catch (NonTransientDataAccessException ex) {
+                if (ex instanceof DuplicateKeyException && batch.size() == 1) {
+                    log.debug("Journalled post {} was written before", last.getPostId());
+                    journal.release(last);
+                    return;
+                } else if (ex instanceof NonTransientDataAccessResourceException) {
+                    log.warn("Writing {} journalled posts failed, retrying", batch.size(), ex);
+                    Thread.sleep(retryDelayMillis);
+                } else if (batch.size() > 1) {
+                    for (PostJournal.Entry entry : batch) {
+                        apply(List.of(entry));
+                    }
+                    return;
+                } else {
+                    log.error("Dropping journalled post {} by user {}: {}", last.getPostId(), last.getUserId(), ex.getMessage());
+                    journal.release(last);
+                    return;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Writing {} journalled posts failed, retrying", batch.size(), ex);
+                Thread.sleep(retryDelayMillis);
+            }
+        }
+    }
+
+    private void write(List<PostJournal.Entry> batch, PostJournal.Entry last) {
+        writeTransaction.executeWithoutResult(status -> {
+            List<Object[]> rows = new ArrayList<>(batch.size());
+            for (PostJournal.Entry entry : batch) {
+                rows.add(new Object[]{entry.getPostId(), entry.getTitle(), entry.getContent(), entry.getUserId()});
+            }
+            jdbcTemplate.batchUpdate(INSERT, rows);
+            checkpoints.save(new PostJournalCheckpoint(journal.getJournalId(), last.getSeq()));
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.restblog.data;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import reactor.core.Disposable;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * R2DBC wiring for the reactive read path. Boot's R2dbcAutoConfiguration is excluded because a ConnectionFactory
+ * bean makes DataSourceAutoConfiguration back off and take the JPA side down with it, so the connection factory
+ * is kept private to this configuration and the repository is built by hand.
+ */
+@Configuration
+@ConditionalOnProperty(name = "reactive.server.enabled", havingValue = "true")
+public class ReactiveDataConfiguration {
+
+    private final ConnectionFactory connectionFactory;
+
+    public ReactiveDataConfiguration(@Value("${spring.r2dbc.url}") String url,
+                                     @Value("${spring.r2dbc.username:}") String username,
+                                     @Value("${spring.r2dbc.password:}") String password) {
+        ConnectionFactoryBuilder builder = ConnectionFactoryBuilder.withUrl(url);
+        if (!username.isEmpty()) {
+            builder.username(username).password(password);
+        }
+        this.connectionFactory = builder.build();
+    }
+
+    @Bean
+    public ReactivePostRepository reactivePostRepository() {
+        return new R2dbcRepositoryFactory(new R2dbcEntityTemplate(connectionFactory)).getRepository(ReactivePostRepository.class);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connectionFactory instanceof Disposable) {
+            ((Disposable) connectionFactory).dispose();
+        }
+    }
+}
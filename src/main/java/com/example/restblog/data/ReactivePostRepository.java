@@ -0,0 +1,20 @@
+package com.example.restblog.data;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterpart of PostRepository's listing queries. Writes stay on the JPA side.
+ */
+public interface ReactivePostRepository extends Repository<PostRow, Long> {
+
+    /**
+     * Posts after the given id, in id order, with their author's username. Rows are pulled from the driver as
+     * the subscriber requests them.
+     */
+    @Query("select p.id, p.title, p.content, p.user_id, u.username as author " +
+            "from posts p join users u on u.id = p.user_id where p.id > :after order by p.id limit :limit")
+    Flux<PostRow> findByIdGreaterThan(@Param("after") long after, @Param("limit") int limit);
+}
@@ -0,0 +1,59 @@
+package com.example.restblog.data;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+
+/**
+ * Keeps what is read from a replica out of the second-level cache. Replicas can lag, and an entity cached from one
+ * would be served until its region expires rather than only for the lag window. Read-only transactions headed for a
+ * replica still read from the cache, they just don't add to it; everything read from the primary is cached as usual.
+ */
+class ReplicaCacheModeJpaDialect extends HibernateJpaDialect {
+
+    private final ReplicaRoutingDataSource routing;
+
+    ReplicaCacheModeJpaDialect(ReplicaRoutingDataSource routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition) throws SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || !routing.readsFromReplica()) {
+            return transactionData;
+        }
+        // The JPA property rather than the Session's cache mode: find() only looks at the former
+        Object previous = entityManager.getProperties().getOrDefault(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, CacheStoreMode.USE);
+        entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReplicaRead(transactionData, entityManager, previous);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaRead) {
+            ReplicaRead read = (ReplicaRead) transactionData;
+            if (read.entityManager.isOpen()) {
+                read.entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, read.previous);
+            }
+            transactionData = read.transactionData;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    private static final class ReplicaRead {
+        private final Object transactionData;
+        private final EntityManager entityManager;
+        private final Object previous;
+
+        private ReplicaRead(Object transactionData, EntityManager entityManager, Object previous) {
+            this.transactionData = transactionData;
+            this.entityManager = entityManager;
+            this.previous = previous;
+        }
+    }
+}
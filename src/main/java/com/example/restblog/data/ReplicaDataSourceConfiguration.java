@@ -0,0 +1,109 @@
+package com.example.restblog.data;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Primary/replica routing, switched on by listing replica JDBC URLs in replica.datasource.urls. The primary pool is
+ * configured exactly like Boot's (spring.datasource.*, spring.datasource.hikari.*); each replica pool copies its
+ * settings with its own URL and, unless replica.datasource.username/password say otherwise, the same credentials.
+ *
+ * replica.lag-window-ms should cover the worst replication lag you expect: for that long after a write, the
+ * writer's reads stay on the primary (see ReplicaRoutingDataSource).
+ *
+ * Routing is decided per transaction, so Hibernate is told to hand its connection back after every transaction.
+ * Spring's default is to hold it until the EntityManager closes, which with open-in-view is the end of the
+ * request: the first read-only lookup would pin a replica connection and a later save would run on the replica.
+ * Replica reads are also kept out of the second-level cache (see ReplicaCacheModeJpaDialect).
+ */
+@Configuration
+@ConditionalOnProperty(name = "replica.datasource.urls")
+public class ReplicaDataSourceConfiguration {
+
+    private final List<HikariDataSource> replicas = new ArrayList<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource, MeterRegistry meterRegistry,
+                                               @Value("${replica.datasource.urls}") List<String> urls,
+                                               @Value("${replica.datasource.username:${spring.datasource.username:}}") String username,
+                                               @Value("${replica.datasource.password:${spring.datasource.password:}}") String password,
+                                               @Value("${replica.lag-window-ms:5000}") long lagWindowMillis) {
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setPoolName("replica-" + replicas.size());
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setReadOnly(true);
+            config.setMetricRegistry(null);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, Duration.ofMillis(lagWindowMillis), Ticker.systemTicker());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory, ReplicaRoutingDataSource routingDataSource,
+                                                    ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager() {
+            @Override
+            public void afterPropertiesSet() {
+                super.afterPropertiesSet(); // takes the dialect from the EntityManagerFactory
+                setJpaDialect(new ReplicaCacheModeJpaDialect(routingDataSource));
+            }
+        };
+        transactionManager.setEntityManagerFactory(entityManagerFactory);
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @PreDestroy
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
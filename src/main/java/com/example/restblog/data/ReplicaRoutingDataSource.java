@@ -0,0 +1,121 @@
+package com.example.restblog.data;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions (Spring Data's read methods, anything @Transactional(readOnly = true)) to the replicas
+ * in turn and everything else to the primary.
+ *
+ * Read-your-writes: a caller whose write transaction committed less than the lag window ago keeps reading from the
+ * primary, so they see their own change however far behind the replicas are, as long as that is within the window.
+ * Callers are told apart by their authenticated name; anonymous reads always go to a replica.
+ *
+ * The key is picked when the connection is first used, so this must sit behind a LazyConnectionDataSourceProxy:
+ * the transaction's read-only flag isn't published until after the transaction manager has asked for a connection.
+ * Whoever uses the connection must also give it back at the end of each transaction, or the next transaction
+ * inherits the previous one's key (see ReplicaDataSourceConfiguration for Hibernate's side of this).
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<String> replicaKeys = new ArrayList<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    // Names of callers that committed a write within the lag window
+    private final Cache<String, Boolean> recentWriters;
+
+    ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, Duration lagWindow, Ticker ticker) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaKeys.add("replica-" + i);
+            targets.put("replica-" + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(lagWindow)
+                .ticker(ticker)
+                .build();
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String caller = caller();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWrite(caller);
+            return PRIMARY;
+        }
+        if (!readsFromReplica(caller)) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+    }
+
+    /**
+     * Whether a read-only transaction started now by the current caller would be served by a replica.
+     */
+    boolean readsFromReplica() {
+        return readsFromReplica(caller());
+    }
+
+    private boolean readsFromReplica(String caller) {
+        return !replicaKeys.isEmpty() && (caller == null || recentWriters.getIfPresent(caller) == null);
+    }
+
+    /**
+     * Starts the caller's window when the surrounding transaction commits, or right away outside a transaction.
+     */
+    private void recordWrite(String caller) {
+        if (caller == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recentWriters.put(caller, Boolean.TRUE);
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return; // already registered for this transaction
+        }
+        TransactionSynchronizationManager.bindResource(this, caller);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(caller, Boolean.TRUE);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReplicaRoutingDataSource.this);
+            }
+        });
+    }
+
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
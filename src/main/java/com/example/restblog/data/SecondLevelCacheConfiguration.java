@@ -0,0 +1,77 @@
+package com.example.restblog.data;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * In-process Hibernate second-level cache on Caffeine's JCache provider: the users and posts entity regions plus the
+ * query cache behind UserRepository.findByEmail/existsByEmail. Every region is created here with its own size and
+ * TTL, and Hibernate fails to start rather than silently create an unbounded region for anything else.
+ *
+ * Hit and miss counts per region are in Hibernate's statistics, published as hibernate.second.level.cache.requests
+ * and hibernate.query.cache.requests. Entities only change through Hibernate, so writes keep the regions current;
+ * a bulk JPQL or native update would need to evict them itself.
+ */
+@Configuration
+@ConditionalOnProperty(name = "cache.second-level.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfiguration {
+
+    static final String USERS = "users";
+    static final String POSTS = "posts";
+
+    private final CacheManager cacheManager;
+
+    public SecondLevelCacheConfiguration(@Value("${cache.second-level.users.max-size:10000}") long usersMaxSize,
+                                         @Value("${cache.second-level.posts.max-size:10000}") long postsMaxSize,
+                                         @Value("${cache.second-level.queries.max-size:10000}") long queriesMaxSize,
+                                         @Value("${cache.second-level.ttl-seconds:600}") long ttlSeconds) {
+        // A manager of our own per application context, so contexts sharing a JVM (tests) don't share regions
+        this.cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("restblog:" + UUID.randomUUID()), getClass().getClassLoader());
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        cacheManager.createCache(USERS, region(usersMaxSize, ttl));
+        cacheManager.createCache(POSTS, region(postsMaxSize, ttl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(queriesMaxSize, ttl));
+        // Last-write times per table that cached query results are checked against: never evicted or expired
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache() {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @PreDestroy
+    public void close() {
+        cacheManager.close();
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        return configuration;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.restblog.data;
+
+/**
+ * Id and email of a user, all UserEmailIndex needs to build itself.
+ */
+public interface UserEmail {
+    long getId();
+    String getEmail();
+}
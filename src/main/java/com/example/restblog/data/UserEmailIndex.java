@@ -0,0 +1,253 @@
+package com.example.restblog.data;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory trigram index over user emails for case-insensitive substring search. Each trigram maps to the sorted
+ * ids of the users whose email contains it, so a search walks the shortest posting list of the query's trigrams and
+ * checks each candidate, instead of the table scan a LIKE '%x%' costs.
+ *
+ * Posting lists are growable arrays. New users have the highest ids, so indexing one appends to each list. Ids whose
+ * email lost a trigram are left in that trigram's list, since every candidate is checked against its current email
+ * anyway. A list is compacted once more than half of it is such leftovers.
+ *
+ * Built from the database on the first search. After that only writes reported through put/remove are seen, so
+ * anything changing emails behind UsersController's back (another instance, a SQL script) needs a rebuild(), which
+ * admins can trigger through POST /api/users/search/rebuild. Queries shorter than a trigram scan the in-memory emails.
+ */
+@Component
+public class UserEmailIndex {
+
+    private static final int N = 3;
+
+    private final UserRepository repository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Both null until the first search builds them
+    private TreeMap<Long, String> emails;
+
+    private Map<String, Posting> postings;
+
+    public UserEmailIndex(UserRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Ids of users whose email contains the given text, ignoring case, in id order starting after the given id.
+     * Returns at most limit ids.
+     */
+    public List<Long> search(String text, long after, int limit) {
+        String query = text.toLowerCase(Locale.ROOT);
+        readLockBuilt();
+        try {
+            List<Long> ids = new ArrayList<>(Math.min(limit, 64));
+            if (query.length() < N) {
+                for (Map.Entry<Long, String> entry : emails.tailMap(after, false).entrySet()) {
+                    if (ids.size() == limit) {
+                        break;
+                    }
+                    if (entry.getValue().contains(query)) {
+                        ids.add(entry.getKey());
+                    }
+                }
+                return ids;
+            }
+            Posting candidates = shortestPosting(query);
+            if (candidates == null) {
+                return ids;
+            }
+            int i = Arrays.binarySearch(candidates.ids, 0, candidates.size, after);
+            for (i = i < 0 ? -i - 1 : i + 1; i < candidates.size && ids.size() < limit; i++) {
+                String email = emails.get(candidates.ids[i]);
+                if (email != null && email.contains(query)) {
+                    ids.add(candidates.ids[i]);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a created user or a (possibly) changed email.
+     */
+    public void put(long id, String email) {
+        lock.writeLock().lock();
+        try {
+            if (emails == null) {
+                return;
+            }
+            String current = email.toLowerCase(Locale.ROOT);
+            String previous = emails.put(id, current);
+            if (current.equals(previous)) {
+                return;
+            }
+            for (String trigram : trigrams(current)) {
+                postings.computeIfAbsent(trigram, key -> new Posting()).add(id);
+            }
+            if (previous != null) {
+                unindex(previous, current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (emails == null) {
+                return;
+            }
+            String previous = emails.remove(id);
+            if (previous != null) {
+                unindex(previous, "");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the index; the next search reloads it from the database.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            emails = null;
+            postings = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns holding the read lock, with the index built.
+     */
+    private void readLockBuilt() {
+        lock.readLock().lock();
+        if (emails != null) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            if (emails == null) {
+                build();
+            }
+            lock.readLock().lock(); // downgrade, so no rebuild() can get in before the search
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void build() {
+        TreeMap<Long, String> loaded = new TreeMap<>();
+        for (UserEmail user : repository.findAllEmails()) {
+            loaded.put(user.getId(), user.getEmail().toLowerCase(Locale.ROOT));
+        }
+        // Ids arrive in ascending order from the TreeMap, so every add is an append
+        Map<String, Posting> built = new HashMap<>();
+        loaded.forEach((id, email) -> {
+            for (String trigram : trigrams(email)) {
+                built.computeIfAbsent(trigram, key -> new Posting()).add(id);
+            }
+        });
+        postings = built;
+        emails = loaded;
+    }
+
+    private Posting shortestPosting(String query) {
+        Posting shortest = null;
+        for (String trigram : trigrams(query)) {
+            Posting posting = postings.get(trigram);
+            if (posting == null) {
+                return null;
+            }
+            if (shortest == null || posting.size < shortest.size) {
+                shortest = posting;
+            }
+        }
+        return shortest;
+    }
+
+    // Counts the leftovers in the lists of trigrams the previous email had and the current one lacks
+    private void unindex(String previous, String current) {
+        Set<String> gone = new HashSet<>(trigrams(previous));
+        trigrams(current).forEach(gone::remove);
+        for (String trigram : gone) {
+            Posting posting = postings.get(trigram);
+            if (posting != null && ++posting.stale > posting.size / 2) {
+                posting.retainIf(id -> {
+                    String email = emails.get(id);
+                    return email != null && email.contains(trigram);
+                });
+                if (posting.size == 0) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static List<String> trigrams(String text) {
+        List<String> trigrams = new ArrayList<>(Math.max(0, text.length() - N + 1));
+        for (int i = 0; i + N <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + N));
+        }
+        return trigrams;
+    }
+
+    private static final class Posting {
+        private long[] ids = new long[4];
+        private int size;
+        // Ids listed here whose email no longer has the trigram, roughly: an id that regains it is still counted
+        private int stale;
+
+        void add(long id) {
+            int at;
+            if (size == 0 || ids[size - 1] < id) {
+                at = size;
+            } else {
+                at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) {
+                    return;
+                }
+                at = -at - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void retainIf(LongPredicate keep) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (keep.test(ids[i])) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+            stale = 0;
+            if (ids.length > 4 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            }
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package com.example.restblog.data;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Login and sign-up look users up by email; cached (query cache) until the users table is next written
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
-    List<User> findByEmailContains(String email);
     List<User> findAllByEmail(String email);
     List<User> findAllByEmailContainsAndEmail(String email, String auth);
 
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    @Query("select u.id as id, u.email as email from User u")
+    List<UserEmail> findAllEmails();
+}
@@ -133,9 +133,16 @@ class ApiError {
 
 class LowerCaseClassNameResolver extends TypeIdResolverBase {
 
+    private static final ClassValue<String> IDS = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getSimpleName().toLowerCase();
+        }
+    };
+
     @Override
     public String idFromValue(Object value) {
-        return value.getClass().getSimpleName().toLowerCase();
+        return IDS.get(value.getClass());
     }
 
     @Override
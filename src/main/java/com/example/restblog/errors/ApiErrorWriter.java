@@ -0,0 +1,196 @@
+package com.example.restblog.errors;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serializes ApiError bodies. Errors without sub-errors (every 401, 404 and 503) are filled into templates
+ * that the real ObjectMapper rendered once per status, so the common case costs a few array copies instead
+ * of a polymorphic Jackson write. Anything else goes through a cached ObjectWriter.
+ */
+@Component
+class ApiErrorWriter {
+
+    private static final String MESSAGE_SLOT = "@@message@@";
+    private static final String DEBUG_SLOT = "@@debugMessage@@";
+    private static final LocalDateTime TIMESTAMP_SLOT = LocalDateTime.of(2001, 2, 3, 4, 5, 6);
+
+    private final ObjectWriter writer;
+
+    private final DateTimeFormatter timestampFormat;
+
+    private final ConcurrentMap<TemplateKey, Template> templates = new ConcurrentHashMap<>();
+
+    // Last formatted timestamp; errors arrive in bursts within the same second
+    private volatile FormattedTimestamp lastTimestamp = new FormattedTimestamp(LocalDateTime.MIN, new byte[0]);
+
+    ApiErrorWriter(ObjectMapper mapper) {
+        this.writer = mapper.writerFor(ApiError.class);
+        try {
+            this.timestampFormat = DateTimeFormatter.ofPattern(
+                    ApiError.class.getDeclaredField("timestamp").getAnnotation(JsonFormat.class).pattern());
+        } catch (NoSuchFieldException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    byte[] toJson(ApiError apiError) {
+        if (apiError.getSubErrors() != null || apiError.getStatus() == null || apiError.getTimestamp() == null) {
+            return serialize(apiError);
+        }
+        Template template = templates.computeIfAbsent(
+                new TemplateKey(apiError.getStatus(), apiError.getMessage() != null, apiError.getDebugMessage() != null),
+                this::render);
+        return template == null ? serialize(apiError) : template.fill(timestamp(apiError.getTimestamp()),
+                quote(apiError.getMessage()), quote(apiError.getDebugMessage()));
+    }
+
+    ResponseEntity<Object> toResponse(ApiError apiError) {
+        return ResponseEntity.status(apiError.getStatus()).contentType(MediaType.APPLICATION_JSON).body(toJson(apiError));
+    }
+
+    void write(ApiError apiError, HttpServletResponse response) throws IOException {
+        byte[] body = toJson(apiError);
+        response.setStatus(apiError.getStatus().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private byte[] serialize(ApiError apiError) {
+        try {
+            return writer.writeValueAsBytes(apiError);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Renders a sample error with marker values and cuts the output around them. Returns null (no template,
+     * always serialize) if the markers don't come out in the expected order.
+     */
+    private Template render(TemplateKey key) {
+        ApiError sample = new ApiError(key.status);
+        sample.setTimestamp(TIMESTAMP_SLOT);
+        sample.setMessage(key.hasMessage ? MESSAGE_SLOT : null);
+        sample.setDebugMessage(key.hasDebugMessage ? DEBUG_SLOT : null);
+        String json = new String(serialize(sample), StandardCharsets.UTF_8);
+
+        String[] slots = {timestampFormat.format(TIMESTAMP_SLOT), key.hasMessage ? MESSAGE_SLOT : null, key.hasDebugMessage ? DEBUG_SLOT : null};
+        byte[][] parts = {new byte[0], new byte[0], new byte[0], null};
+        int from = 0;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                continue;
+            }
+            int at = json.indexOf(slots[i], from);
+            if (at < 0) {
+                return null;
+            }
+            parts[i] = json.substring(from, at).getBytes(StandardCharsets.UTF_8);
+            from = at + slots[i].length();
+        }
+        parts[3] = json.substring(from).getBytes(StandardCharsets.UTF_8);
+        return new Template(parts);
+    }
+
+    private byte[] timestamp(LocalDateTime timestamp) {
+        LocalDateTime second = timestamp.withNano(0);
+        FormattedTimestamp last = lastTimestamp;
+        if (!last.second.equals(second)) {
+            last = new FormattedTimestamp(second, timestampFormat.format(second).getBytes(StandardCharsets.UTF_8));
+            lastTimestamp = last;
+        }
+        return last.bytes;
+    }
+
+    private static byte[] quote(String value) {
+        return value == null ? null : JsonStringEncoder.getInstance().quoteAsUTF8(value);
+    }
+
+    /**
+     * Literal JSON before the timestamp, message and debugMessage slots, plus the tail. Parts before a slot
+     * that is absent in this shape are empty.
+     */
+    private static class Template {
+        private final byte[][] parts;
+
+        Template(byte[][] parts) {
+            this.parts = parts;
+        }
+
+        byte[] fill(byte[] timestamp, byte[] message, byte[] debugMessage) {
+            byte[][] values = {timestamp, message, debugMessage};
+            int length = 0;
+            for (byte[] part : parts) {
+                length += part.length;
+            }
+            for (byte[] value : values) {
+                length += value == null ? 0 : value.length;
+            }
+            byte[] json = new byte[length];
+            int at = 0;
+            for (int i = 0; i < parts.length; i++) {
+                System.arraycopy(parts[i], 0, json, at, parts[i].length);
+                at += parts[i].length;
+                if (i < values.length && values[i] != null) {
+                    System.arraycopy(values[i], 0, json, at, values[i].length);
+                    at += values[i].length;
+                }
+            }
+            return json;
+        }
+    }
+
+    private static class TemplateKey {
+        private final HttpStatus status;
+        private final boolean hasMessage;
+        private final boolean hasDebugMessage;
+
+        TemplateKey(HttpStatus status, boolean hasMessage, boolean hasDebugMessage) {
+            this.status = status;
+            this.hasMessage = hasMessage;
+            this.hasDebugMessage = hasDebugMessage;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey other = (TemplateKey) o;
+            return status == other.status && hasMessage == other.hasMessage && hasDebugMessage == other.hasDebugMessage;
+        }
+
+        @Override
+        public int hashCode() {
+            return status.hashCode() * 4 + (hasMessage ? 2 : 0) + (hasDebugMessage ? 1 : 0);
+        }
+    }
+
+    private static class FormattedTimestamp {
+        private final LocalDateTime second;
+        private final byte[] bytes;
+
+        FormattedTimestamp(LocalDateTime second, byte[] bytes) {
+            this.second = second;
+            this.bytes = bytes;
+        }
+    }
+}
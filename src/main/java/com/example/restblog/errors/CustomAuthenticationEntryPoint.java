@@ -1,12 +1,5 @@
 package com.example.restblog.errors;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.converter.HttpMessageConverter;
-import org.springframework.http.converter.StringHttpMessageConverter;
-import org.springframework.http.server.ServerHttpResponse;
-import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
@@ -20,13 +13,10 @@ import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 @Component
 public class CustomAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
-    private final HttpMessageConverter<String> messageConverter;
+    private final ApiErrorWriter errorWriter;
 
-    private final ObjectMapper mapper;
-
-    public CustomAuthenticationEntryPoint(ObjectMapper mapper) {
-        this.messageConverter = new StringHttpMessageConverter();
-        this.mapper = mapper;
+    CustomAuthenticationEntryPoint(ApiErrorWriter errorWriter) {
+        this.errorWriter = errorWriter;
     }
 
     @Override
@@ -34,10 +24,6 @@ public class CustomAuthenticationEntryPoint implements AuthenticationEntryPoint
         ApiError apiError = new ApiError(UNAUTHORIZED);
         apiError.setMessage(e.getMessage());
         apiError.setDebugMessage(e.getMessage());
-
-        ServerHttpResponse outputMessage = new ServletServerHttpResponse(httpServletResponse);
-        outputMessage.setStatusCode(HttpStatus.UNAUTHORIZED);
-
-        messageConverter.write(mapper.writeValueAsString(apiError), MediaType.APPLICATION_JSON, outputMessage);
+        errorWriter.write(apiError, httpServletResponse);
     }
 }
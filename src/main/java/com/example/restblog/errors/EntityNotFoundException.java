@@ -2,34 +2,47 @@ package com.example.restblog.errors;
 
 import org.springframework.util.StringUtils;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.IntStream;
-
 /**
  * Thanks to Bruno Cleite
+ *
+ * Stackless: it is an expected outcome that maps straight to a 404, so filling in a trace on every miss
+ * is wasted work. The message is only built if something asks for it.
  */
 public class EntityNotFoundException extends RuntimeException {
 
+    private final String entity;
+
+    private final String[] searchParams;
+
+    private String message;
+
     public EntityNotFoundException(Class clazz, String... searchParamsMap) {
-        super(EntityNotFoundException.generateMessage(clazz.getSimpleName(), toMap(String.class, String.class, searchParamsMap)));
+        super(null, null, false, false);
+        if (searchParamsMap.length % 2 == 1)
+            throw new IllegalArgumentException("Invalid entries");
+        this.entity = clazz.getSimpleName();
+        this.searchParams = searchParamsMap;
     }
 
-    private static String generateMessage(String entity, Map<String, String> searchParams) {
-        return StringUtils.capitalize(entity) +
-                " was not found for parameters " +
-                searchParams;
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            message = generateMessage(entity, searchParams);
+        }
+        return message;
     }
 
-    private static <K, V> Map<K, V> toMap(
-            Class<K> keyType, Class<V> valueType, Object... entries) {
-        if (entries.length % 2 == 1)
-            throw new IllegalArgumentException("Invalid entries");
-        return IntStream.range(0, entries.length / 2).map(i -> i * 2)
-                .collect(HashMap::new,
-                        (m, i) -> m.put(keyType.cast(entries[i]), valueType.cast(entries[i + 1])),
-                        Map::putAll);
+    private static String generateMessage(String entity, String[] searchParams) {
+        StringBuilder builder = new StringBuilder(64)
+                .append(StringUtils.capitalize(entity))
+                .append(" was not found for parameters {");
+        for (int i = 0; i < searchParams.length; i += 2) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(searchParams[i]).append('=').append(searchParams[i + 1]);
+        }
+        return builder.append('}').toString();
     }
 
 }
-
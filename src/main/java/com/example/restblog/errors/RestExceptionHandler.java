@@ -33,6 +33,12 @@ import static org.springframework.http.HttpStatus.*;
 @Slf4j
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final ApiErrorWriter errorWriter;
+
+    RestExceptionHandler(ApiErrorWriter errorWriter) {
+        this.errorWriter = errorWriter;
+    }
+
     /**
      * Handle MissingServletRequestParameterException. Triggered when a 'required' request parameter is missing.
      *
@@ -212,8 +218,21 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(apiError);
     }
 
+    /**
+     * Handles ServiceUnavailableException, raised when a bounded resource such as the password hashing pool is full.
+     *
+     * @param ex the ServiceUnavailableException
+     * @return the ApiError object
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    protected ResponseEntity<Object> handleServiceUnavailable(ServiceUnavailableException ex) {
+        ApiError apiError = new ApiError(SERVICE_UNAVAILABLE);
+        apiError.setMessage(ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
     private ResponseEntity<Object> buildResponseEntity(ApiError apiError) {
-        return new ResponseEntity<>(apiError, apiError.getStatus());
+        return errorWriter.toResponse(apiError);
     }
 
 }
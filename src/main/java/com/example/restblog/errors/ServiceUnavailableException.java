@@ -0,0 +1,16 @@
+package com.example.restblog.errors;
+
+/**
+ * Thrown when a bounded resource (e.g. the password hashing pool) is saturated and the request should be
+ * rejected with a 503 rather than queued. Stackless, since it is raised exactly when the server is busiest.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message, null, false, false);
+    }
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.restblog.errors;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.ThrowableAnalyzer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Turns a ServiceUnavailableException escaping the filter chain (e.g. client authentication on /oauth/token
+ * hitting a saturated hashing pool) into a 503 ApiError instead of a generic 500.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceUnavailableFilter extends OncePerRequestFilter {
+
+    private final ApiErrorWriter errorWriter;
+
+    private final ThrowableAnalyzer throwableAnalyzer = new ThrowableAnalyzer();
+
+    ServiceUnavailableFilter(ApiErrorWriter errorWriter) {
+        this.errorWriter = errorWriter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } catch (ServletException | RuntimeException ex) {
+            Throwable busy = throwableAnalyzer.getFirstThrowableOfType(ServiceUnavailableException.class, throwableAnalyzer.determineCauseChain(ex));
+            if (busy == null || response.isCommitted()) {
+                throw ex;
+            }
+            ApiError apiError = new ApiError(SERVICE_UNAVAILABLE);
+            apiError.setMessage(busy.getMessage());
+            errorWriter.write(apiError, response);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.restblog.errors;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Answers a request that is over its rate limit with a 429 ApiError and a Retry-After in whole seconds.
+ */
+@Component
+public class TooManyRequestsHandler {
+
+    private final ApiErrorWriter errorWriter;
+
+    TooManyRequestsHandler(ApiErrorWriter errorWriter) {
+        this.errorWriter = errorWriter;
+    }
+
+    public void handle(HttpServletResponse response, long retryAfterNanos) throws IOException {
+        ApiError apiError = new ApiError(TOO_MANY_REQUESTS);
+        apiError.setMessage("Too many requests, try again later");
+        long seconds = Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        errorWriter.write(apiError, response);
+    }
+}
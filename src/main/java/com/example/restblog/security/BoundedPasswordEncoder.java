@@ -0,0 +1,106 @@
+package com.example.restblog.security;
+
+import com.example.restblog.errors.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a (BCrypt) PasswordEncoder on its own fixed-size pool so CPU-bound hashing cannot tie up every
+ * servlet thread. Work beyond the pool and its bounded queue is rejected straight away with a
+ * ServiceUnavailableException, which the error handlers turn into a 503.
+ *
+ * With rehashOnLogin set, upgradeEncoding() reports hashes weaker than the delegate's cost so that
+ * DaoAuthenticationProvider re-hashes them through UserDetailsPasswordService after a successful login.
+ *
+ * The password.encode and password.match timers include time spent queued, which is what callers wait for.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final boolean rehashOnLogin;
+
+    private final Timer encodeTimer;
+
+    private final Timer matchTimer;
+
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, boolean rehashOnLogin, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.rehashOnLogin = rehashOnLogin;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = Timer.builder("password.encode").register(meterRegistry);
+        this.matchTimer = Timer.builder("password.match").register(meterRegistry);
+        this.rejected = Counter.builder("password.rejected")
+                .description("Hashing requests turned away because the pool and queue were full")
+                .register(meterRegistry);
+        Gauge.builder("password.queue.depth", this, BoundedPasswordEncoder::queueDepth).register(meterRegistry);
+        Gauge.builder("password.active", this, BoundedPasswordEncoder::activeCount).register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encodeTimer.record(() -> submit(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return matchTimer.record(() -> submit(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return rehashOnLogin && delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int activeCount() {
+        return executor.getActiveCount();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Password hashing capacity exhausted, try again shortly", ex);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new ServiceUnavailableException("Interrupted while waiting for password hashing", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+}
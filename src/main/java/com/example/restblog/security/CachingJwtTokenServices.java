@@ -0,0 +1,129 @@
+package com.example.restblog.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Remembers access tokens the delegate has already verified, so a client resending the same JWT skips the
+ * decode and signature check. Entries are keyed by a SHA-256 digest of the token (the token itself is never
+ * retained) and expire at the token's own exp claim, or after maxTtl if that comes first.
+ *
+ * Only the verified request and user are kept: every call gets its own OAuth2Authentication, because
+ * OAuth2AuthenticationManager sets details and the authenticated flag on the one it is handed.
+ */
+public class CachingJwtTokenServices implements ResourceServerTokenServices, MeterBinder {
+
+    private final ResourceServerTokenServices delegate;
+
+    private final Cache<String, VerifiedToken> cache;
+
+    public CachingJwtTokenServices(ResourceServerTokenServices delegate, long maxSize, Duration maxTtl) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry(maxTtl.toNanos()))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+        String key = digest(accessToken);
+        VerifiedToken verified = cache.getIfPresent(key);
+        if (verified != null) {
+            return new OAuth2Authentication(verified.request, verified.userAuthentication);
+        }
+        OAuth2Authentication authentication = delegate.loadAuthentication(accessToken);
+        long expiresAtMillis = expiresAtMillis(accessToken);
+        if (expiresAtMillis > System.currentTimeMillis()) {
+            cache.put(key, new VerifiedToken(authentication.getOAuth2Request(), authentication.getUserAuthentication(), expiresAtMillis));
+        }
+        return authentication;
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        return delegate.readAccessToken(accessToken);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "jwt.verified");
+    }
+
+    /**
+     * Reads exp without verifying; only called once the delegate has accepted the token. Tokens without exp
+     * are not cached at all.
+     */
+    private static long expiresAtMillis(String accessToken) {
+        Map<String, Object> claims = JsonParserFactory.create().parseMap(JwtHelper.decode(accessToken).getClaims());
+        Object exp = claims.get("exp");
+        return exp instanceof Number ? ((Number) exp).longValue() * 1000L : 0L;
+    }
+
+    private static String digest(String accessToken) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(accessToken.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static class VerifiedToken {
+        private final OAuth2Request request;
+        private final Authentication userAuthentication;
+        private final long expiresAtMillis;
+
+        VerifiedToken(OAuth2Request request, Authentication userAuthentication, long expiresAtMillis) {
+            this.request = request;
+            this.userAuthentication = userAuthentication;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        private final long maxTtlNanos;
+
+        UntilTokenExpiry(long maxTtlNanos) {
+            this.maxTtlNanos = maxTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long untilExpiry = Duration.ofMillis(value.expiresAtMillis - System.currentTimeMillis()).toNanos();
+            return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.restblog.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.config.annotation.method.configuration.GlobalMethodSecurityConfiguration;
+import org.springframework.security.core.Authentication;
+
+/**
+ * @PreAuthorize/@PostAuthorize expressions are compiled to bytecode once they have run a few times (MIXED falls
+ * back to interpreting anything that can't be compiled). The request's UserAccess is exposed as #userAccess rather
+ * than as a @bean reference, which the SpEL compiler doesn't support.
+ */
+@Configuration
+@EnableGlobalMethodSecurity(prePostEnabled = true, proxyTargetClass = true)
+public class MethodSecurityConfig extends GlobalMethodSecurityConfiguration {
+
+    private final ObjectProvider<UserAccess> userAccess;
+
+    private final ApplicationContext applicationContext;
+
+    public MethodSecurityConfig(ObjectProvider<UserAccess> userAccess, ApplicationContext applicationContext) {
+        this.userAccess = userAccess;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    protected MethodSecurityExpressionHandler createExpressionHandler() {
+        DefaultMethodSecurityExpressionHandler handler = new DefaultMethodSecurityExpressionHandler() {
+            @Override
+            public StandardEvaluationContext createEvaluationContextInternal(Authentication authentication, MethodInvocation invocation) {
+                StandardEvaluationContext context = super.createEvaluationContextInternal(authentication, invocation);
+                context.setVariable("userAccess", userAccess.getIfAvailable());
+                return context;
+            }
+        };
+        handler.setExpressionParser(new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.MIXED, MethodSecurityConfig.class.getClassLoader())));
+        handler.setApplicationContext(applicationContext);
+        return handler;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.restblog.security;
 
+import com.example.restblog.errors.TooManyRequestsHandler;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,7 +11,9 @@ import org.springframework.security.oauth2.config.annotation.configurers.ClientD
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableAuthorizationServer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
+import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 @Configuration
 @EnableAuthorizationServer
@@ -22,6 +25,8 @@ public class OAuthConfiguration extends AuthorizationServerConfigurerAdapter {
 
     private final UserDetailsService userService;
 
+    private final TooManyRequestsHandler tooManyRequestsHandler;
+
     @Value("${jwt.clientId:rest-blog-client}")
     private String clientId;
 
@@ -40,10 +45,32 @@ public class OAuthConfiguration extends AuthorizationServerConfigurerAdapter {
     @Value("${jwt.refreshTokenValiditySeconds:2592000}") // 30 days
     private int refreshTokenValiditySeconds;
 
-    public OAuthConfiguration(AuthenticationManager authenticationManager, PasswordEncoder passwordEncoder, UserDetailsService userService) {
+    @Value("${rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${rate-limit.token.permits-per-second:5}")
+    private double tokenPermitsPerSecond;
+
+    @Value("${rate-limit.token.burst:10}")
+    private int tokenBurst;
+
+    public OAuthConfiguration(AuthenticationManager authenticationManager, PasswordEncoder passwordEncoder, UserDetailsService userService, TooManyRequestsHandler tooManyRequestsHandler) {
         this.authenticationManager = authenticationManager;
         this.passwordEncoder = passwordEncoder;
         this.userService = userService;
+        this.tooManyRequestsHandler = tooManyRequestsHandler;
+    }
+
+    /**
+     * Token requests are rate limited per client address before the client secret or the user's password is
+     * checked, since both are BCrypt hashes.
+     */
+    @Override
+    public void configure(AuthorizationServerSecurityConfigurer security) {
+        if (rateLimitEnabled) {
+            RateLimiter limiter = new RateLimiter(tokenPermitsPerSecond, tokenBurst, System::nanoTime);
+            security.addTokenEndpointAuthenticationFilter(new RateLimitFilter(limiter, new AntPathRequestMatcher("/oauth/token"), tooManyRequestsHandler));
+        }
     }
 
     @Override
@@ -63,7 +90,8 @@ public class OAuthConfiguration extends AuthorizationServerConfigurerAdapter {
         endpoints
                 .accessTokenConverter(accessTokenConverter())
                 .userDetailsService(userService)
-                .authenticationManager(authenticationManager);
+                .authenticationManager(authenticationManager)
+                .exceptionTranslator(new OAuthExceptionTranslator());
     }
 
     @Bean
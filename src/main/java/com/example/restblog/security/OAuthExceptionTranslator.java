@@ -0,0 +1,43 @@
+package com.example.restblog.security;
+
+import com.example.restblog.errors.ServiceUnavailableException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.error.DefaultWebResponseExceptionTranslator;
+import org.springframework.security.web.util.ThrowableAnalyzer;
+
+/**
+ * Maps a saturated password hashing pool during token issuance to 503 temporarily_unavailable
+ * instead of the token endpoint's default 500 server_error.
+ */
+class OAuthExceptionTranslator extends DefaultWebResponseExceptionTranslator {
+
+    private final ThrowableAnalyzer throwableAnalyzer = new ThrowableAnalyzer();
+
+    @Override
+    public ResponseEntity<OAuth2Exception> translate(Exception e) throws Exception {
+        Throwable busy = throwableAnalyzer.getFirstThrowableOfType(ServiceUnavailableException.class, throwableAnalyzer.determineCauseChain(e));
+        if (busy != null) {
+            return new ResponseEntity<>(new TemporarilyUnavailableException(busy.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return super.translate(e);
+    }
+
+    private static class TemporarilyUnavailableException extends OAuth2Exception {
+
+        TemporarilyUnavailableException(String msg) {
+            super(msg);
+        }
+
+        @Override
+        public String getOAuth2ErrorCode() {
+            return "temporarily_unavailable";
+        }
+
+        @Override
+        public int getHttpErrorCode() {
+            return HttpStatus.SERVICE_UNAVAILABLE.value();
+        }
+    }
+}
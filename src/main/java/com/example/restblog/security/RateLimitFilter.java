@@ -0,0 +1,58 @@
+package com.example.restblog.security;
+
+import com.example.restblog.errors.TooManyRequestsHandler;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Rate limits the matching requests with a RateLimiter, per authenticated principal or, before or without
+ * authentication, per client address. Requests over the limit get a 429 and never reach the rest of the chain.
+ * Added to the security filter chains directly rather than declared as a bean, so that Boot doesn't also
+ * register it as a servlet filter.
+ */
+class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter limiter;
+
+    private final RequestMatcher matcher;
+
+    private final TooManyRequestsHandler tooManyRequestsHandler;
+
+    RateLimitFilter(RateLimiter limiter, RequestMatcher matcher, TooManyRequestsHandler tooManyRequestsHandler) {
+        this.limiter = limiter;
+        this.matcher = matcher;
+        this.tooManyRequestsHandler = tooManyRequestsHandler;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !matcher.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        long wait = limiter.tryAcquire(key(request));
+        if (wait > 0) {
+            tooManyRequestsHandler.handle(response, wait);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    static String key(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return "address:" + request.getRemoteAddr();
+        }
+        return "principal:" + authentication.getName();
+    }
+}
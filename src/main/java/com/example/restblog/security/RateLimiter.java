@@ -0,0 +1,69 @@
+package com.example.restblog.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key (a client address or a principal): each holds burst tokens and refills at
+ * permitsPerSecond. A bucket is a single AtomicLong holding the time at which it will be full again (the GCRA form
+ * of a token bucket), so refilling and taking a token is one compareAndSet, with no lock and no refill thread.
+ *
+ * Full buckets are indistinguishable from new ones, so they are swept out of the map at most once per sweep
+ * interval by whichever caller gets there first. A caller racing the sweep may get one token for free.
+ */
+class RateLimiter {
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final long nanosPerToken;
+
+    private final long burstNanos;
+
+    private final long sweepIntervalNanos;
+
+    private final LongSupplier nanoTime;
+
+    private final AtomicLong nextSweep;
+
+    RateLimiter(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = nanosPerToken * Math.max(1, burst);
+        this.sweepIntervalNanos = Math.max(burstNanos, TimeUnit.MINUTES.toNanos(1));
+        this.nanoTime = nanoTime;
+        this.nextSweep = new AtomicLong(nanoTime.getAsLong() + sweepIntervalNanos);
+    }
+
+    /**
+     * Takes a token from the key's bucket. Returns 0 if there was one, otherwise how many nanoseconds until there
+     * will be.
+     */
+    long tryAcquire(String key) {
+        long now = nanoTime.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long full = bucket.get();
+            long next = (full - now < 0 ? now : full) + nanosPerToken;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                break;
+            }
+        }
+        long sweep = nextSweep.get();
+        if (now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + sweepIntervalNanos)) {
+            buckets.values().removeIf(idle -> idle.get() - now <= 0);
+        }
+        return 0;
+    }
+
+    int size() {
+        return buckets.size();
+    }
+}
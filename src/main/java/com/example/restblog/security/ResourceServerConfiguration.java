@@ -2,30 +2,91 @@ package com.example.restblog.security;
 
 import com.example.restblog.errors.CustomAccessDeniedHandler;
 import com.example.restblog.errors.CustomAuthenticationEntryPoint;
+import com.example.restblog.errors.TooManyRequestsHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableResourceServer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.ResourceServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configurers.ResourceServerSecurityConfigurer;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.time.Duration;
+import java.util.Set;
 
 @Configuration
 @EnableResourceServer
 public class ResourceServerConfiguration extends ResourceServerConfigurerAdapter {
 
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private static final RequestMatcher API_PATHS = new AntPathRequestMatcher("/api/**");
+
+    // A batch is a POST but only ever dispatches GETs, so it is a read
+    private static final RequestMatcher BATCH = new AntPathRequestMatcher("/api/batch");
+
+    private static final RequestMatcher API_WRITES = request -> !SAFE_METHODS.contains(request.getMethod())
+            && API_PATHS.matches(request) && !BATCH.matches(request);
+
     private final CustomAuthenticationEntryPoint customAuthenticationEntryPoint;
 
-    public ResourceServerConfiguration(CustomAuthenticationEntryPoint customAuthenticationEntryPoint) {
+    private final TooManyRequestsHandler tooManyRequestsHandler;
+
+    private final JwtAccessTokenConverter accessTokenConverter;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jwt.verified-cache.enabled:true}")
+    private boolean verifiedCacheEnabled;
+
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    @Value("${jwt.verified-cache.max-ttl-seconds:3600}")
+    private long verifiedCacheMaxTtlSeconds;
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${rate-limit.api-writes.permits-per-second:20}")
+    private double apiWritesPerSecond;
+
+    @Value("${rate-limit.api-writes.burst:40}")
+    private int apiWritesBurst;
+
+    public ResourceServerConfiguration(CustomAuthenticationEntryPoint customAuthenticationEntryPoint, TooManyRequestsHandler tooManyRequestsHandler, JwtAccessTokenConverter accessTokenConverter, MeterRegistry meterRegistry) {
         this.customAuthenticationEntryPoint = customAuthenticationEntryPoint;
+        this.tooManyRequestsHandler = tooManyRequestsHandler;
+        this.accessTokenConverter = accessTokenConverter;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
     public void configure(ResourceServerSecurityConfigurer resources) {
         resources.resourceId("api");
+        if (verifiedCacheEnabled) {
+            DefaultTokenServices tokenServices = new DefaultTokenServices();
+            tokenServices.setTokenStore(new JwtTokenStore(accessTokenConverter));
+            CachingJwtTokenServices cachingTokenServices = new CachingJwtTokenServices(tokenServices, verifiedCacheMaxSize, Duration.ofSeconds(verifiedCacheMaxTtlSeconds));
+            cachingTokenServices.bindTo(meterRegistry);
+            resources.tokenServices(cachingTokenServices);
+        }
     }
 
     @Override
     public void configure(HttpSecurity http) throws Exception {
+        if (rateLimitEnabled) {
+            // API writes per principal (per address when anonymous), after the bearer token is read and before the rules
+            RateLimiter limiter = new RateLimiter(apiWritesPerSecond, apiWritesBurst, System::nanoTime);
+            http.addFilterBefore(new RateLimitFilter(limiter, API_WRITES, tooManyRequestsHandler), FilterSecurityInterceptor.class);
+        }
         // TODO: Flesh out remaining secured endpoints
         http
                 .cors()
@@ -1,28 +1,47 @@
 package com.example.restblog.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
-import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 @EnableWebSecurity
-@EnableGlobalMethodSecurity(prePostEnabled = true, proxyTargetClass = true)
 public class ServerSecurityConfig extends WebSecurityConfigurerAdapter {
 
 
     private final UserDetailsService userDetailsService;
 
+    private final UserDetailsPasswordService userDetailsPasswordService;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${security.bcrypt.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int bcryptThreads;
+
+    @Value("${security.bcrypt.queue-capacity:64}")
+    private int bcryptQueueCapacity;
+
+    @Value("${security.bcrypt.rehash-on-login:false}") // re-hash weaker stored hashes at bcryptStrength on login
+    private boolean rehashOnLogin;
+
     public ServerSecurityConfig(@Qualifier("userService")
-            UserDetailsService userDetailsService) {
+            UserDetailsService userDetailsService, UserDetailsPasswordService userDetailsPasswordService, MeterRegistry meterRegistry) {
         this.userDetailsService = userDetailsService;
+        this.userDetailsPasswordService = userDetailsPasswordService;
+        this.meterRegistry = meterRegistry;
     }
 
     @Bean
@@ -30,12 +49,13 @@ public class ServerSecurityConfig extends WebSecurityConfigurerAdapter {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setPasswordEncoder(passwordEncoder());
         provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsPasswordService);
         return provider;
     }
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), bcryptThreads, bcryptQueueCapacity, rehashOnLogin, meterRegistry);
     }
 
     @Bean
@@ -0,0 +1,52 @@
+package com.example.restblog.security;
+
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import com.example.restblog.errors.EntityNotFoundException;
+import org.springframework.context.annotation.Scope;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-request owner checks for user writes. The user a @PreAuthorize expression loads (as #userAccess, see
+ * MethodSecurityConfig) is kept for the rest of the request, so the handler gets the same instance from
+ * user(id) instead of looking it up again.
+ *
+ * Request scoped without a proxy: resolve it through an ObjectProvider while a request is active.
+ */
+@Component
+@Scope(WebApplicationContext.SCOPE_REQUEST)
+public class UserAccess {
+
+    private final UserRepository repository;
+
+    private final Map<Long, Optional<User>> users = new HashMap<>(2);
+
+    private final Map<Long, Boolean> ownership = new HashMap<>(2);
+
+    public UserAccess(UserRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Whether the authenticated principal is the user with this id. False if there is no such user.
+     */
+    public boolean isOwner(long id, Authentication authentication) {
+        return ownership.computeIfAbsent(id, key -> find(key)
+                .map(user -> user.getEmail().equals(authentication.getPrincipal()))
+                .orElse(false));
+    }
+
+    public User user(long id) {
+        return find(id).orElseThrow(() -> new EntityNotFoundException(User.class, "id", Long.toString(id)));
+    }
+
+    private Optional<User> find(long id) {
+        return users.computeIfAbsent(id, repository::findById);
+    }
+}
@@ -2,25 +2,116 @@ package com.example.restblog.security;
 
 import com.example.restblog.data.User;
 import com.example.restblog.data.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository repository;
 
-    public UserService(UserRepository repository) {
+    // Keyed by email. Anything that changes a user's email, password or role must call evict().
+    private final Cache<String, UserDetails> cache;
+
+    // Loads in progress by email; evict() marks those of its email stale, so their results aren't cached
+    private final ConcurrentHashMap<String, List<AtomicBoolean>> loading = new ConcurrentHashMap<>();
+
+    private final Timer loadTimer;
+
+    public UserService(UserRepository repository, MeterRegistry meterRegistry,
+                       @Value("${users.cache.max-size:10000}") long maxSize,
+                       @Value("${users.cache.ttl-seconds:300}") long ttlSeconds) {
         this.repository = repository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+        this.loadTimer = Timer.builder("users.load")
+                .description("UserDetails lookups, including those served from the cache")
+                .register(meterRegistry);
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        return loadTimer.record(() -> loadCopy(email));
+    }
+
+    private UserDetails loadCopy(String email) {
+        // Not cache.get(email, loader): that runs the query inside a ConcurrentHashMap bin lock, which pins the carrier
+        // when running on virtual threads. Concurrent misses may each load. The result is only cached if the email
+        // wasn't evicted since the load began; the check runs under the entry's lock, which evict() then waits for.
+        UserDetails details = cache.getIfPresent(email);
+        if (details == null) {
+            AtomicBoolean stale = new AtomicBoolean();
+            loading.compute(email, (key, loads) -> {
+                List<AtomicBoolean> registered = loads == null ? new ArrayList<>(1) : loads;
+                registered.add(stale);
+                return registered;
+            });
+            try {
+                UserDetails loaded = load(email);
+                cache.asMap().compute(email, (key, current) -> current != null ? current : stale.get() ? null : loaded);
+                details = loaded;
+            } finally {
+                loading.computeIfPresent(email, (key, loads) -> {
+                    loads.remove(stale);
+                    return loads.isEmpty() ? null : loads;
+                });
+            }
+        }
+        // Spring Security erases credentials on the instance it is handed, so never give out the cached one
+        return org.springframework.security.core.userdetails.User.withUserDetails(details).build();
+    }
+
+    /**
+     * Called by DaoAuthenticationProvider after a successful login when the stored hash needs upgrading.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails details, String newPassword) {
+        repository.findByEmail(details.getUsername()).ifPresent(user -> {
+            user.setPassword(newPassword);
+            repository.save(user);
+        });
+        evict(details.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(details).password(newPassword).build();
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            loading.computeIfPresent(email, (key, loads) -> {
+                loads.forEach(stale -> stale.set(true));
+                return loads;
+            });
+            cache.invalidate(email);
+        }
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    private UserDetails load(String email) {
         User user = repository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found: " + email));
         GrantedAuthority authority = new SimpleGrantedAuthority(user.getRole().name());
         return new org.springframework.security.core.userdetails.User(user.getEmail(), user.getPassword(), Arrays.asList(authority));
@@ -0,0 +1,101 @@
+package com.example.restblog.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.DefaultWebInvocationPrivilegeEvaluator;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolationException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static javax.servlet.http.HttpServletResponse.*;
+
+/**
+ * Resolves several GETs against our own API in one round trip. Takes a map of key to path (e.g.
+ * {"posts": "/api/posts/summaries"}) and answers with the same keys mapped to each entry's status and body.
+ *
+ * Entries are dispatched in-process through the DispatcherServlet on the calling thread, so they share this
+ * request's authentication and open persistence context. The security filters do not run again; instead each
+ * path is checked against the URL rules of the filter chain that would have handled it, and method security
+ * applies as usual.
+ */
+@Slf4j
+@RestController
+@RequestMapping(value = "/api/batch", headers = "Accept=application/json")
+public class BatchController {
+
+    private static final String API_PREFIX = "/api/";
+
+    private final DispatcherServlet dispatcherServlet;
+
+    private final FilterChainProxy filterChainProxy;
+
+    @Value("${batch.max-requests:20}")
+    private int maxRequests;
+
+    public BatchController(DispatcherServlet dispatcherServlet, @Qualifier("springSecurityFilterChain") Filter springSecurityFilterChain) {
+        this.dispatcherServlet = dispatcherServlet;
+        this.filterChainProxy = (FilterChainProxy) springSecurityFilterChain;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    Map<String, BatchResult> batch(@RequestBody Map<String, String> paths, HttpServletRequest request, HttpServletResponse response) {
+        if (paths.size() > maxRequests) {
+            throw new ConstraintViolationException("A batch may contain at most " + maxRequests + " requests", new HashSet<>());
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Map<String, BatchResult> results = new LinkedHashMap<>();
+        paths.forEach((key, path) -> results.put(key, dispatch(path, authentication, request, response)));
+        return results;
+    }
+
+    private BatchResult dispatch(String path, Authentication authentication, HttpServletRequest request, HttpServletResponse response) {
+        if (path == null || !path.startsWith(API_PREFIX) || path.startsWith("/api/batch")) {
+            return new BatchResult(SC_BAD_REQUEST, null);
+        }
+        BatchSubRequest subRequest = new BatchSubRequest(request, path);
+        if (!isAllowed(subRequest, authentication)) {
+            return new BatchResult(SC_UNAUTHORIZED, null);
+        }
+        BatchSubResponse subResponse = new BatchSubResponse(response);
+        try {
+            dispatcherServlet.service(subRequest, subResponse);
+        } catch (Exception ex) {
+            log.warn("Batch entry {} failed", path, ex);
+            return new BatchResult(SC_INTERNAL_SERVER_ERROR, null);
+        }
+        String contentType = subResponse.getContentType();
+        String body = subResponse.getBody();
+        boolean json = contentType != null && contentType.contains("json") && !body.isEmpty();
+        return new BatchResult(subResponse.getStatus(), json ? body : null);
+    }
+
+    private boolean isAllowed(BatchSubRequest subRequest, Authentication authentication) {
+        for (SecurityFilterChain chain : filterChainProxy.getFilterChains()) {
+            if (chain.matches(subRequest)) {
+                return chain.getFilters().stream()
+                        .filter(FilterSecurityInterceptor.class::isInstance)
+                        .map(FilterSecurityInterceptor.class::cast)
+                        .allMatch(interceptor -> new DefaultWebInvocationPrivilegeEvaluator(interceptor)
+                                .isAllowed(subRequest.getContextPath(), subRequest.getPath(), "GET", authentication));
+            }
+        }
+        return true;
+    }
+}
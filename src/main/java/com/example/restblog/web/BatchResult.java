@@ -0,0 +1,16 @@
+package com.example.restblog.web;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Status and JSON body of one entry in a batch response. The body is embedded as-is, without re-parsing.
+ */
+@Data
+@AllArgsConstructor
+class BatchResult {
+    private int status;
+    @JsonRawValue
+    private String body;
+}
@@ -0,0 +1,186 @@
+package com.example.restblog.web;
+
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A bodyless GET for one entry of a batch, sharing the outer request's headers (and so its Authorization) but with
+ * its own path, query string and attributes so nested dispatching cannot disturb the outer request.
+ */
+class BatchSubRequest extends HttpServletRequestWrapper {
+
+    private final String path;
+    private final String query;
+    private final Map<String, String[]> parameters;
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    BatchSubRequest(HttpServletRequest outer, String pathAndQuery) {
+        super(outer);
+        UriComponents uri = UriComponentsBuilder.fromUriString(pathAndQuery).build();
+        this.path = uri.getPath();
+        this.query = uri.getQuery();
+        MultiValueMap<String, String> decoded = new LinkedMultiValueMap<>();
+        uri.getQueryParams().forEach((name, values) -> values.forEach(value ->
+                decoded.add(UriUtils.decode(name, StandardCharsets.UTF_8), value == null ? "" : UriUtils.decode(value, StandardCharsets.UTF_8))));
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        decoded.forEach((name, values) -> parameters.put(name, values.toArray(new String[0])));
+        this.parameters = Collections.unmodifiableMap(parameters);
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer(getScheme()).append("://").append(getServerName());
+        if (getServerPort() > 0) {
+            url.append(':').append(getServerPort());
+        }
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getServletPath() {
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return query;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return -1;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return true;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                // Sub-requests have no body, so it has all been read and there is never data to announce
+                try {
+                    readListener.onAllDataRead();
+                } catch (IOException ex) {
+                    readListener.onError(ex);
+                }
+            }
+
+            @Override
+            public int read() {
+                return -1;
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new StringReader(""));
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.restblog.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of a bulk post ingestion, including the throughput it achieved.
+ */
+@Data
+@AllArgsConstructor
+class BulkCreateResult {
+    private long created;
+    private int chunks;
+    private long elapsedMillis;
+    private double postsPerSecond;
+}
@@ -0,0 +1,16 @@
+package com.example.restblog.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing plus the cursor to pass as ?after= for the next page (null on the last page).
+ */
+@Data
+@AllArgsConstructor
+class KeysetPage<T> {
+    private List<T> content;
+    private Long next;
+}
@@ -0,0 +1,48 @@
+package com.example.restblog.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.validation.ConstraintViolationException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * JSON Merge Patch (RFC 7396) for our flat entities: members present in the patch replace the target's properties,
+ * a null member sets the property to null and absent members are left alone. The target is updated in place, so a
+ * managed entity only sees setter calls for the properties the patch names.
+ */
+final class MergePatch {
+
+    static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private MergePatch() {
+    }
+
+    /**
+     * Applies the patch onto target. Only the given properties may be patched; anything else, a patch that is not
+     * a JSON object or a value of the wrong type is rejected with a 400.
+     */
+    static <T> T apply(ObjectMapper mapper, T target, JsonNode patch, Set<String> patchable) {
+        if (patch == null || !patch.isObject()) {
+            throw new ConstraintViolationException("A merge patch must be a JSON object", new HashSet<>());
+        }
+        for (Iterator<String> names = patch.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!patchable.contains(name)) {
+                throw new ConstraintViolationException("'" + name + "' cannot be patched", new HashSet<>());
+            }
+        }
+        try {
+            return mapper.readerForUpdating(target).readValue(patch);
+        } catch (JsonProcessingException ex) {
+            throw new ConstraintViolationException("Invalid merge patch: " + ex.getOriginalMessage(), new HashSet<>());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.restblog.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Answer to a post accepted in write-behind mode: the id the post will have once it is written.
+ */
+@Data
+@AllArgsConstructor
+class PostReceipt {
+    private long id;
+}
@@ -0,0 +1,14 @@
+package com.example.restblog.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * View count of a post, including views not yet written to the database.
+ */
+@Data
+@AllArgsConstructor
+class PostViews {
+    private long postId;
+    private long views;
+}
@@ -2,40 +2,288 @@ package com.example.restblog.web;
 
 import com.example.restblog.data.Post;
 import com.example.restblog.data.PostRepository;
+import com.example.restblog.data.PostSummary;
+import com.example.restblog.data.PostVersion;
+import com.example.restblog.data.PostViewCounter;
+import com.example.restblog.data.PostWriteBehind;
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import com.example.restblog.errors.EntityNotFoundException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @RestController
 @RequestMapping(value="/api/posts", headers="Accept=application/json")
 public class PostsController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final Set<String> PATCHABLE = Set.of("title", "content");
+
     private final PostRepository postRepository;
 
-    public PostsController(PostRepository postRepository) {
+    private final UserRepository userRepository;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper mapper;
+
+    private final Validator validator;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TransactionTemplate writeTransaction;
+
+    private final ObjectProvider<PostWriteBehind> writeBehind;
+
+    private final PostViewCounter viewCounter;
+
+    @Value("${posts.page.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${posts.page.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${posts.summary.excerpt-length:200}")
+    private int excerptLength;
+
+    @Value("${posts.bulk.chunk-size:500}")
+    private int defaultChunkSize;
+
+    public PostsController(PostRepository postRepository, UserRepository userRepository, EntityManager entityManager, ObjectMapper mapper, Validator validator, PlatformTransactionManager transactionManager, ObjectProvider<PostWriteBehind> writeBehind, PostViewCounter viewCounter) {
         this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.mapper = mapper;
+        this.validator = validator;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeBehind = writeBehind;
+        this.viewCounter = viewCounter;
     }
 
     @GetMapping
-    private List<Post> getPosts() {
-        List<Post> posts = new ArrayList<>();
-        try {
-            posts = postRepository.findAll();
-            System.out.println(posts);
-        } catch (Exception ex) {
-            System.out.println(ex.getLocalizedMessage());
+    private KeysetPage<Post> getPosts(@RequestParam(defaultValue = "0") long after, @RequestParam(required = false) Integer limit, WebRequest request) {
+        // One transaction, so the ETag and the page come from the same database when reads go to replicas
+        return readOnlyTransaction.execute(status -> {
+            if (request.checkNotModified(listingEtag(after, limit))) {
+                return null;
+            }
+            Slice<Post> slice = postRepository.findByIdGreaterThanOrderByIdAsc(after, pageOf(limit));
+            List<Post> posts = slice.getContent();
+            Long next = slice.hasNext() ? posts.get(posts.size() - 1).getId() : null;
+            return new KeysetPage<>(posts, next);
+        });
+    }
+
+    @GetMapping("/summaries")
+    private KeysetPage<PostSummary> getPostSummaries(@RequestParam(defaultValue = "0") long after, @RequestParam(required = false) Integer limit, WebRequest request) {
+        return readOnlyTransaction.execute(status -> {
+            if (request.checkNotModified(listingEtag(after, limit))) {
+                return null;
+            }
+            Slice<PostSummary> slice = postRepository.findSummariesByIdGreaterThan(after, excerptLength, pageOf(limit));
+            List<PostSummary> summaries = slice.getContent();
+            Long next = slice.hasNext() ? summaries.get(summaries.size() - 1).getId() : null;
+            return new KeysetPage<>(summaries, next);
+        });
+    }
+
+    /**
+     * Writes every post as newline-delimited JSON straight to the response. Each post (and its author) is
+     * detached once written, so the persistence context and heap stay flat however large the table is.
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    private void exportPosts(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        try (SequenceWriter writer = mapper.writerFor(Post.class).withRootValueSeparator("\n").writeValues(response.getOutputStream())) {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Post> posts = postRepository.streamAllByOrderById()) {
+                    posts.forEach(post -> {
+                        try {
+                            writer.write(post);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                        entityManager.detach(post.getUser());
+                        entityManager.detach(post);
+                    });
+                }
+            });
+            writer.flush();
+            response.getOutputStream().write('\n');
         }
-        return posts;
     }
 
+    /**
+     * Creates a post. In write-behind mode (see PostWriteBehind) the post is only journalled here and the answer is a
+     * 202 carrying the id it was given; it reaches the database, and the listings, shortly after.
+     */
     @PostMapping
-    private void createPost(@RequestBody Post newPost) {
-        try {
+    private ResponseEntity<PostReceipt> createPost(@RequestBody Post newPost) {
+        validated(newPost);
+        PostWriteBehind writeBehind = this.writeBehind.getIfAvailable();
+        if (writeBehind == null) {
             postRepository.save(newPost);
-        } catch (Exception ex) {
-            System.out.println(ex.getLocalizedMessage());
+            return ResponseEntity.ok().build();
+        }
+        long userId = newPost.getUser().getId();
+        userRepository.findById(userId).orElseThrow(() -> new EntityNotFoundException(User.class, "id", Long.toString(userId)));
+        return ResponseEntity.accepted().body(new PostReceipt(writeBehind.submit(newPost.getTitle(), newPost.getContent(), userId)));
+    }
+
+    /**
+     * Counts a view of a post. Views are counted in memory and written to post_stats in batches (see
+     * PostViewCounter); the post itself usually comes from the second-level cache.
+     */
+    @PostMapping("/{id}/views")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    private void recordView(@PathVariable long id) {
+        postRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(Post.class, "id", Long.toString(id)));
+        viewCounter.increment(id);
+    }
+
+    @GetMapping("/{id}/views")
+    private PostViews getViews(@PathVariable long id) {
+        postRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(Post.class, "id", Long.toString(id)));
+        return new PostViews(id, viewCounter.views(id));
+    }
+
+    /**
+     * Applies a JSON Merge Patch to a post's title and/or content. Only the changed columns are written. Authors may
+     * patch their own posts; other authorities any post.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    private void patchPost(@PathVariable long id, @RequestBody JsonNode patch, Authentication authentication) {
+        // Checked before the post is loaded, so a USER can't tell someone else's post from a missing one
+        if (authentication == null || !authentication.isAuthenticated()
+                || isUser(authentication) && !postRepository.existsByIdAndUserEmail(id, authentication.getName())) {
+            throw new AccessDeniedException("Access is denied");
         }
+        writeTransaction.executeWithoutResult(status -> {
+            Post post = postRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(Post.class, "id", Long.toString(id)));
+            validated(MergePatch.apply(mapper, post, patch, PATCHABLE));
+        });
+    }
+
+    /**
+     * Creates posts from a JSON array or an NDJSON stream. Posts are read one at a time and persisted in
+     * chunks, each chunk in its own transaction with JDBC batching, and the persistence context is cleared
+     * between chunks. A post that is malformed or fails validation aborts the request with a 400, and one by an
+     * unknown author with a 404; chunks already written stay committed.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    private BulkCreateResult createPosts(HttpServletRequest request, @RequestParam(required = false) Integer chunkSize) throws IOException {
+        int size = chunkSize == null ? defaultChunkSize : Math.max(1, chunkSize);
+        long start = System.nanoTime();
+        long created = 0;
+        int chunks = 0;
+        List<Post> chunk = new ArrayList<>(size);
+        try (MappingIterator<Post> posts = mapper.readerFor(Post.class).readValues(request.getInputStream())) {
+            while (posts.hasNextValue()) {
+                chunk.add(validated(posts.nextValue()));
+                if (chunk.size() == size) {
+                    created += persistChunk(chunk);
+                    chunks++;
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            throw new HttpMessageNotReadableException("Malformed post after " + (created + chunk.size()) + " posts", ex, new ServletServerHttpRequest(request));
+        }
+        if (!chunk.isEmpty()) {
+            created += persistChunk(chunk);
+            chunks++;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        double postsPerSecond = elapsedNanos == 0 ? 0 : created * 1_000_000_000d / elapsedNanos;
+        return new BulkCreateResult(created, chunks, elapsedNanos / 1_000_000, postsPerSecond);
+    }
+
+    private Post validated(Post post) {
+        Set<ConstraintViolation<Post>> violations = validator.validate(post);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return post;
+    }
+
+    private int persistChunk(List<Post> chunk) {
+        return writeTransaction.execute(status -> {
+            // References aren't checked until the flush, so check the chunk's authors up front: a 404, not a 500
+            Set<Long> missing = chunk.stream().map(post -> post.getUser().getId()).collect(Collectors.toCollection(HashSet::new));
+            userRepository.findAllById(new ArrayList<>(missing)).forEach(user -> missing.remove(user.getId()));
+            if (!missing.isEmpty()) {
+                throw new EntityNotFoundException(User.class, "id", missing.iterator().next().toString());
+            }
+            for (Post post : chunk) {
+                post.setUser(entityManager.getReference(User.class, post.getUser().getId()));
+                entityManager.persist(post);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return chunk.size();
+        });
+    }
+
+    /**
+     * ETag for a listing page, built from the ids and versions of the posts on it and of their authors, so a matching
+     * If-None-Match is answered with a 304 before any content is loaded. Whether there is a next page counts too, as
+     * it decides the cursor. Called in the page query's transaction, so both read the same database.
+     */
+    private String listingEtag(long after, Integer limit) {
+        Slice<PostVersion> page = postRepository.findVersionsByIdGreaterThan(after, pageOf(limit));
+        StringBuilder versions = new StringBuilder(page.getNumberOfElements() * 16).append(page.hasNext());
+        for (PostVersion post : page) {
+            versions.append(',').append(post.getId()).append(':').append(post.getPostVersion()).append(':').append(post.getAuthorVersion());
+        }
+        return "\"posts-" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.US_ASCII)) + "\"";
+    }
+
+    private static boolean isUser(Authentication authentication) {
+        return authentication.getAuthorities().stream().anyMatch(authority -> User.Role.USER.name().equals(authority.getAuthority()));
+    }
+
+    private PageRequest pageOf(Integer limit) {
+        int size = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        return PageRequest.of(0, size);
     }
 }
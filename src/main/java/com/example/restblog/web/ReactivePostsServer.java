@@ -0,0 +1,93 @@
+package com.example.restblog.web;
+
+import com.example.restblog.data.PostRow;
+import com.example.restblog.data.ReactivePostRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * Non-blocking variant of GET /api/posts for public read traffic, served by Reactor Netty on its own port
+ * (reactive.server.port) next to the servlet stack. Posts are streamed as newline-delimited JSON straight from
+ * ReactivePostRepository, so a slow client slows the database cursor down rather than filling the heap. Pages are
+ * limited like the servlet listing's (posts.page.default-limit, posts.page.max-limit).
+ * Only covers anonymous reads; everything else stays on the MVC API.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "reactive.server.enabled", havingValue = "true")
+public class ReactivePostsServer implements SmartLifecycle {
+
+    private final ReactivePostRepository repository;
+    private final HttpHandler httpHandler;
+
+    @Value("${reactive.server.port:8081}")
+    private int port;
+
+    @Value("${posts.page.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${posts.page.max-limit:100}")
+    private int maxLimit;
+
+    private volatile DisposableServer server;
+
+    public ReactivePostsServer(ReactivePostRepository repository, ObjectMapper mapper) {
+        this.repository = repository;
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper)))
+                .build();
+        this.httpHandler = RouterFunctions.toHttpHandler(RouterFunctions.route(GET("/api/posts"), this::getPosts), strategies);
+    }
+
+    private Mono<ServerResponse> getPosts(ServerRequest request) {
+        long after;
+        int limit;
+        try {
+            after = request.queryParam("after").map(Long::parseLong).orElse(0L);
+            limit = request.queryParam("limit").map(Integer::parseInt).orElse(defaultLimit);
+        } catch (NumberFormatException ex) {
+            return ServerResponse.badRequest().build();
+        }
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(repository.findByIdGreaterThan(after, Math.max(1, Math.min(limit, maxLimit))), PostRow.class);
+    }
+
+    @Override
+    public void start() {
+        server = HttpServer.create().port(port).handle(new ReactorHttpHandlerAdapter(httpHandler)).bindNow();
+        log.info("Reactive posts API listening on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        server.disposeNow();
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    public int getPort() {
+        return server.port();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.restblog.web;
+
+import com.example.restblog.data.User;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds a version-based ETag to single User responses and answers a matching If-None-Match with a 304 and no body.
+ * Runs after the handler (and its @PostAuthorize check) so the ownership rules still apply to conditional requests.
+ */
+@ControllerAdvice
+class UserEtagAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return User.class.equals(returnType.getParameterType());
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(body instanceof User) || request.getMethod() != HttpMethod.GET
+                || !(request instanceof ServletServerHttpRequest) || !(response instanceof ServletServerHttpResponse)) {
+            return body;
+        }
+        User user = (User) body;
+        ServletWebRequest webRequest = new ServletWebRequest(((ServletServerHttpRequest) request).getServletRequest(),
+                ((ServletServerHttpResponse) response).getServletResponse());
+        if (webRequest.checkNotModified(String.format("\"user-%d-%d\"", user.getId(), user.getVersion()))) {
+            return null;
+        }
+        return body;
+    }
+}
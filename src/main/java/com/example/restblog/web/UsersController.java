@@ -1,31 +1,71 @@
 package com.example.restblog.web;
 
 import com.example.restblog.data.User;
+import com.example.restblog.data.UserEmailIndex;
 import com.example.restblog.data.UserRepository;
 import com.example.restblog.errors.EntityNotFoundException;
+import com.example.restblog.security.UserAccess;
+import com.example.restblog.security.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import javax.validation.Validator;
 import javax.validation.constraints.Size;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping(value="/api/users", headers="Accept=application/json")
 @Slf4j
 class UsersController {
+    private static final Set<String> PATCHABLE = Set.of("email", "username", "role");
+
+    // A USER may edit their own account but not promote it
+    private static final Set<String> PATCHABLE_BY_OWNER = Set.of("email", "username");
+
     private final UserRepository repository;
     private final PasswordEncoder passwordEncoder;
+    private final UserService userService;
+    private final UserEmailIndex emailIndex;
+    private final ObjectProvider<UserAccess> userAccess;
+    private final ObjectMapper mapper;
+    private final Validator validator;
+
+    @Value("${users.search.default-limit:20}")
+    private int defaultLimit;
 
-    UsersController(UserRepository repository, PasswordEncoder passwordEncoder) {
+    @Value("${users.search.max-limit:100}")
+    private int maxLimit;
+
+    UsersController(UserRepository repository, PasswordEncoder passwordEncoder, UserService userService, UserEmailIndex emailIndex,
+                    ObjectProvider<UserAccess> userAccess, ObjectMapper mapper, Validator validator) {
         this.repository = repository;
         this.passwordEncoder = passwordEncoder;
+        this.userService = userService;
+        this.emailIndex = emailIndex;
+        this.userAccess = userAccess;
+        this.mapper = mapper;
+        this.validator = validator;
     }
 
     @GetMapping
@@ -38,14 +78,35 @@ class UsersController {
         return repository.findAll();
     }
 
+    /**
+     * Users whose email contains the given text, a keyset page at a time. Admins are served from UserEmailIndex;
+     * a USER only ever matches themselves.
+     */
     @GetMapping("/search")
-    List<User> search(@RequestParam String email, OAuth2Authentication authentication) {
+    KeysetPage<User> search(@RequestParam String email, @RequestParam(defaultValue = "0") long after,
+                            @RequestParam(required = false) Integer limit, OAuth2Authentication authentication) {
         String auth = (String) authentication.getUserAuthentication().getPrincipal();
         String role = authentication.getAuthorities().iterator().next().getAuthority();
         if (role.equals(User.Role.USER.name())) {
-            return repository.findAllByEmailContainsAndEmail(email, auth);
+            return new KeysetPage<>(repository.findAllByEmailContainsAndEmail(email, auth), null);
         }
-        return repository.findByEmailContains(email);
+        int size = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        List<Long> ids = emailIndex.search(email, after, size + 1);
+        Long next = ids.size() > size ? ids.get(size - 1) : null;
+        List<User> users = repository.findAllById(ids.subList(0, Math.min(size, ids.size()))).stream()
+                .sorted(Comparator.comparingLong(User::getId))
+                .collect(Collectors.toList());
+        return new KeysetPage<>(users, next);
+    }
+
+    /**
+     * Reloads the search index from the database, for emails changed outside this instance.
+     */
+    @PostMapping("/search/rebuild")
+    @PreAuthorize("!hasAuthority('USER')")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    void rebuildSearch() {
+        emailIndex.rebuild();
     }
 
     @GetMapping("/findByEmail")
@@ -61,39 +122,85 @@ class UsersController {
     }
 
     @PutMapping("/{id}")
-    @PreAuthorize("!hasAuthority('USER') || (authentication.principal == @userRepository.findById(#id).orElse(new com.example.restblog.data.User()).email)")
-    void update(@PathVariable Long id, @Valid @RequestBody User res) {
-        User u = repository.findById(id).orElseThrow(() -> new EntityNotFoundException(User.class, "id", id.toString()));
-        res.setPassword(u.getPassword());
-        // TODO: implement other response properties here
-        repository.save(res);
+    @PreAuthorize("!hasAuthority('USER') || #userAccess.isOwner(#id, authentication)")
+    void update(@PathVariable Long id, @Valid @RequestBody User res, Authentication authentication) {
+        // Copied onto the loaded entity: saving res itself would insert when the body has no id and drop the posts collection
+        User u = userAccess.getObject().user(id);
+        String previousEmail = u.getEmail();
+        u.setEmail(res.getEmail());
+        u.setUsername(res.getUsername());
+        if (!isUser(authentication)) {
+            u.setRole(res.getRole());
+        }
+        repository.save(u);
+        emailIndex.put(u.getId(), u.getEmail());
+        userService.evict(previousEmail);
+        userService.evict(u.getEmail());
+    }
+
+    /**
+     * Applies a JSON Merge Patch to email, username and/or role. Only the changed columns are written. A USER patching
+     * their own account may not change its role.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("!hasAuthority('USER') || #userAccess.isOwner(#id, authentication)")
+    void patch(@PathVariable Long id, @RequestBody JsonNode patch, Authentication authentication) {
+        User u = userAccess.getObject().user(id);
+        String previousEmail = u.getEmail();
+        Set<String> patchable = isUser(authentication) ? PATCHABLE_BY_OWNER : PATCHABLE;
+        Set<ConstraintViolation<User>> violations = validator.validate(MergePatch.apply(mapper, u, patch, patchable));
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        repository.save(u);
+        emailIndex.put(u.getId(), u.getEmail());
+        userService.evict(previousEmail);
+        userService.evict(u.getEmail());
     }
 
     @PostMapping
     @PreAuthorize("!hasAuthority('USER')")
     User create(@Valid @RequestBody User res) {
-        return repository.save(res);
+        User saved = repository.save(res);
+        emailIndex.put(saved.getId(), saved.getEmail());
+        return saved;
     }
 
     @DeleteMapping("/{id}")
     @PreAuthorize("!hasAuthority('USER')")
     void delete(@PathVariable Long id) {
-        if (repository.existsById(id)) {
-            repository.deleteById(id);
-        } else {
-            throw new EntityNotFoundException(User.class, "id", id.toString());
-        }
+        User user = repository.findById(id).orElseThrow(() -> new EntityNotFoundException(User.class, "id", id.toString()));
+        repository.delete(user);
+        emailIndex.remove(user.getId());
+        userService.evict(user.getEmail());
     }
 
     @PutMapping("/{id}/changePassword")
-    @PreAuthorize("!hasAuthority('USER') || (#oldPassword != null && !#oldPassword.isEmpty() && authentication.principal == @userRepository.findById(#id).orElse(new net.reliqs.gleeometer.users.User()).email)")
+    @PreAuthorize("!hasAuthority('USER') || (#oldPassword != null && !#oldPassword.isEmpty() && #userAccess.isOwner(#id, authentication))")
     void changePassword(@PathVariable Long id, @RequestParam(required = false) String oldPassword, @Valid @Size(min = 3) @RequestParam String newPassword) {
-        User user = repository.findById(id).orElseThrow(() -> new EntityNotFoundException(User.class, "id", id.toString()));
+        User user = userAccess.getObject().user(id);
         if (oldPassword == null || oldPassword.isEmpty() || passwordEncoder.matches(oldPassword, user.getPassword())) {
             user.setPassword(passwordEncoder.encode(newPassword));
             repository.save(user);
+            userService.evict(user.getEmail());
         } else {
             throw new ConstraintViolationException("old password doesn't match", new HashSet<>());
         }
     }
+
+    @GetMapping("/cacheStats")
+    @PreAuthorize("!hasAuthority('USER')")
+    Map<String, Object> cacheStats() {
+        CacheStats stats = userService.cacheStats();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("hits", stats.hitCount());
+        body.put("misses", stats.missCount());
+        body.put("evictions", stats.evictionCount());
+        body.put("hitRate", stats.hitRate());
+        return body;
+    }
+
+    private static boolean isUser(Authentication authentication) {
+        return authentication.getAuthorities().stream().anyMatch(authority -> User.Role.USER.name().equals(authority.getAuthority()));
+    }
 }
@@ -1,14 +1,108 @@
 package com.example.restblog.web;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 
 @Controller
 public class ViewController {
 
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final MediaType JAVASCRIPT = new MediaType("text", "javascript", StandardCharsets.UTF_8);
+
+    private final StaticAssetPipeline assets;
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public ViewController(StaticAssetPipeline assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * Serves index.html with its module script pointing at the fingerprinted bundle. The page itself is revalidated
+     * on every visit (cheap with the ETag); everything it loads is cached forever.
+     */
     @RequestMapping({"/", "/about", "/login", "/home", "/posts", "/register"})
-    public String showView(){
-        return "forward:/index.html";
+    public ResponseEntity<String> showView(WebRequest request) {
+        if (request.checkNotModified(assets.indexEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.TEXT_HTML)
+                .body(assets.indexHtml());
+    }
+
+    @GetMapping("/js/**")
+    public ResponseEntity<byte[]> module(HttpServletRequest request, WebRequest webRequest,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        StaticAssetPipeline.Asset asset = assets.asset(urlPathHelper.getPathWithinApplication(request));
+        if (asset == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        boolean gzip = asset.gzipped != null && acceptsGzip(acceptEncoding);
+        String etag = gzip ? asset.etag.replaceFirst("\"$", "-gz\"") : asset.etag;
+        if (!asset.immutable && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(JAVASCRIPT)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.CACHE_CONTROL, asset.immutable ? IMMUTABLE : CacheControl.noCache().getHeaderValue())
+                .eTag(etag);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? asset.gzipped : asset.content);
+    }
+
+    /**
+     * Whether an Accept-Encoding header (RFC 7231 5.3.4) allows gzip: listed as gzip or x-gzip, or covered by *, with
+     * a q-value above zero. An explicit gzip entry overrides *.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = quality(parts) > 0;
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard != null && wildcard;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && (parameter.startsWith("q=") || parameter.startsWith("Q="))) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
     }
 
 }
@@ -16,6 +16,7 @@ CREATE TABLE users
     password VARCHAR(60)  NOT NULL,
     email    VARCHAR(200) NOT NULL,
     role     VARCHAR(32)  NOT NULL,
+    version  BIGINT       NOT NULL DEFAULT 0,
     PRIMARY KEY (id)
 
 );
@@ -26,10 +27,20 @@ CREATE TABLE posts
     user_id BIGINT       NOT NULL,
     title   VARCHAR(100) NOT NULL,
     content TEXT         NOT NULL,
+    version BIGINT       NOT NULL DEFAULT 0,
     PRIMARY KEY (id),
     FOREIGN KEY (user_id) REFERENCES users (id)
 );
 
+# Hibernate's table-backed stand-in for a sequence; hands out post ids in blocks of 50
+# (an existing database needs scripts/migrate_posts_seq.sql instead)
+CREATE TABLE posts_seq
+(
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO posts_seq (next_val) VALUES (1);
+
 CREATE TABLE tags
 (
     id   INT NOT NULL AUTO_INCREMENT,
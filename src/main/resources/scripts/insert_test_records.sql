@@ -2,6 +2,8 @@ INSERT INTO users (username, password, email, role) VALUES ('test_user', 'test12
 
 INSERT INTO posts (user_id, title, content) VALUES (1, 'Babys First Post', 'Do not be alarmed. This is only a test.');
 
+UPDATE posts_seq SET next_val = (SELECT MAX(id) + 1 FROM posts);
+
 INSERT INTO tags (name) VALUES ('test_tag');
 
 INSERT INTO post_tags (post_id, tag_id) VALUES (1, 1);
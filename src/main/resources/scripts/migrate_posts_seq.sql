@@ -0,0 +1,13 @@
+# Run once on a blog_db created before post ids came from posts_seq, before starting the new version.
+# ddl-auto=update would create posts_seq starting at 1 and hand out ids the AUTO_INCREMENT posts already have.
+# With the pooled-lo optimizer (see example.properties) the value read is the first id of the next block.
+USE blog_db;
+
+CREATE TABLE IF NOT EXISTS posts_seq
+(
+    next_val BIGINT NOT NULL
+);
+
+DELETE FROM posts_seq;
+
+INSERT INTO posts_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM posts;
@@ -1,18 +1,49 @@
 
 /**
  * Given an object containing all the required data for a given page, fetch all the needed data and return it as properties to pass to a view.
+ * Plain GETs for more than one API resource are resolved in a single round trip through /api/batch.
  * @param state
  * @param request
  * @returns {Promise<{}>}
  */
 export default function fetchData(state, request) {
-    const promises = [];
     //TODO: this needs to be moved to a prop file or env variable
     const baseUri = "http://localhost:8080";
+    const keys = Object.keys(state);
 
     console.log("got to fetch data");
     console.log(request);
-    for (let pieceOfState of Object.keys(state)) {
+    if (!isBatchable(state, request)) {
+        return fetchEach(baseUri, state, keys, request);
+    }
+    return fetch(baseUri + "/api/batch", {
+        ...request,
+        method: "POST",
+        headers: {...request?.headers, 'Content-Type': 'application/json', 'Accept': 'application/json'},
+        body: JSON.stringify(state)
+    })
+        .then(res => res.ok ? res.json() : null)
+        .then(results => {
+            if (results === null) {
+                // The batch as a whole was refused (rate limited, say): fall back to one request per key
+                return fetchEach(baseUri, state, keys, request);
+            }
+            // A failed entry may have no body, so it is fetched on its own: the view gets the same error body it
+            // would have got without batching
+            const failed = keys.filter(key => !isSuccess(results[key]));
+            return fetchEach(baseUri, state, failed, request).then(retried => {
+                const props = {};
+                keys.forEach(key => {
+                    props[key] = key in retried ? retried[key] : results[key].body;
+                });
+                return props;
+            });
+        });
+}
+
+function fetchEach(baseUri, state, keys, request) {
+    const promises = [];
+    for (let pieceOfState of keys) {
         console.log(baseUri + state[pieceOfState]);
         promises.push(
             fetch(baseUri + state[pieceOfState], request)
@@ -22,9 +53,19 @@ export default function fetchData(state, request) {
     }
     return Promise.all(promises).then(propsData => {
         const props = {};
-        Object.keys(state).forEach((key, index) => {
+        keys.forEach((key, index) => {
             props[key] = propsData[index];
         });
         return props;
     });
 }
+
+function isSuccess(result) {
+    return result !== undefined && result.status >= 200 && result.status < 300;
+}
+
+function isBatchable(state, request) {
+    const paths = Object.values(state);
+    const method = (request?.method || "GET").toUpperCase();
+    return method === "GET" && paths.length > 1 && paths.every(path => path.startsWith("/api/"));
+}
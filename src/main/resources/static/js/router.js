@@ -1,5 +1,5 @@
 import Home from "./views/Home.js";
-import PostIndex from "./views/PostIndex.js";
+import PostIndex, {PostIndexEvent} from "./views/PostIndex.js";
 import About from "./views/About.js";
 import Error404 from "./views/Error404.js";
 import Loading from "./views/Loading.js";
@@ -38,10 +38,11 @@ export default function router(URI) {
         '/posts': {
             returnView: PostIndex,
             state: {
-                posts: '/api/posts'
+                posts: '/api/posts/summaries'
             },
             uri: '/posts',
             title: 'All Posts',
+            viewEvent: PostIndexEvent
         },
         '/about': {
             returnView: About,
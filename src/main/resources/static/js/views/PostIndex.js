@@ -1,12 +1,53 @@
+import fetchData from "../fetchData.js";
+import {getHeaders} from "../auth.js";
+
 export default function PostIndex(props) {
     return `
         <header>
             <h1>Posts Page</h1>
         </header>
         <main>
-            <div>
-                ${props.posts.map(post => `<h3>${post.title}</h3>`).join('')}   
+            <div id="posts-list">
+                ${renderPosts(props.posts.content)}   
             </div>
+            ${renderLoadMore(props.posts.next)}
         </main>
     `;
-}
\ No newline at end of file
+}
+
+function renderPosts(posts) {
+    return posts.map(post => `
+        <article>
+            <h3>${post.title}</h3>
+            <p class="text-muted">by ${post.author}</p>
+            <p>${post.excerpt}</p>
+        </article>
+    `).join('');
+}
+
+function renderLoadMore(next) {
+    return next != null
+        ? `<button id="load-more-btn" type="button" data-next="${next}">Load more</button>`
+        : '';
+}
+
+/**
+ * Fetches the next page of posts using the cursor from the previous page and appends it to the list.
+ */
+export function PostIndexEvent() {
+    const button = document.querySelector("#load-more-btn");
+    if (!button) {
+        return;
+    }
+    button.addEventListener("click", function () {
+        fetchData({page: `/api/posts/summaries?after=${button.dataset['next']}`}, {headers: getHeaders()})
+            .then(({page}) => {
+                document.querySelector("#posts-list").insertAdjacentHTML("beforeend", renderPosts(page.content));
+                if (page.next != null) {
+                    button.dataset['next'] = page.next;
+                } else {
+                    button.remove();
+                }
+            });
+    });
+}
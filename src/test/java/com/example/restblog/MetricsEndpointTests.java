@@ -0,0 +1,62 @@
+package com.example.restblog;
+
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureMetrics // metrics export is switched off in tests by default
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.server.port=0",
+        "management.endpoints.web.exposure.include=prometheus"
+})
+class MetricsEndpointTests {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    void exposesRequestAuthPoolAndHibernateMetrics() {
+        userRepository.save(new User(0, "metrics@test.com", "metrics", passwordEncoder.encode("pw"), User.Role.USER, null, 0));
+        MultiValueMap<String, String> login = new LinkedMultiValueMap<>();
+        login.add("grant_type", "password");
+        login.add("username", "metrics@test.com");
+        login.add("password", "pw");
+        assertThat(rest.withBasicAuth("rest-blog-client", "secret").postForEntity("/oauth/token", login, String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rest.getForEntity("/api/posts", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<String> scrape = rest.getForEntity("http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody())
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("http_server_requests_seconds{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/posts\",quantile=\"0.99\",}")
+                .contains("hikaricp_connections_acquire_seconds_bucket{")
+                .contains("hibernate_query_executions_total")
+                .contains("hibernate_entities_loads_total")
+                .contains("users_load_seconds_count")
+                .contains("password_match_seconds_bucket{")
+                .contains("cache_gets_total{cache=\"users\"");
+    }
+}
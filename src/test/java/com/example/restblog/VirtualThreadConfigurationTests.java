@@ -0,0 +1,27 @@
+package com.example.restblog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "threads.virtual.enabled=true")
+class VirtualThreadConfigurationTests {
+
+    @Autowired
+    private AsyncListenableTaskExecutor applicationTaskExecutor;
+
+    @Test
+    void asyncWorkRunsOnVirtualThreadsWhenTheRuntimeHasThem() throws Exception {
+        String threadName = applicationTaskExecutor.submitListenable(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        if (Runtime.version().feature() >= 21) {
+            assertThat(threadName).isEmpty(); // virtual threads from newVirtualThreadPerTaskExecutor are unnamed
+        } else {
+            assertThat(threadName).startsWith("task-"); // Boot's default pool
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.restblog.data;
+
+import com.example.restblog.errors.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostJournalTests {
+
+    private static final int CAPACITY = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unreleasedEntriesArePendingAgainAfterReopening() throws Exception {
+        Path file = dir.resolve("journal");
+        long journalId;
+        try (PostJournal journal = new PostJournal(file, CAPACITY, true)) {
+            journalId = journal.getJournalId();
+            assertThat(journal.append(101, "first", "one", 7)).isEqualTo(1);
+            assertThat(journal.append(102, "second", "two", 8)).isEqualTo(2);
+            assertThat(journal.append(103, "third", "three", 9)).isEqualTo(3);
+            journal.release(journal.take(1, Duration.ZERO).get(0));
+        }
+
+        try (PostJournal journal = new PostJournal(file, CAPACITY, true)) {
+            assertThat(journal.getJournalId()).isEqualTo(journalId);
+            List<PostJournal.Entry> pending = journal.take(10, Duration.ZERO);
+            assertThat(pending).extracting(PostJournal.Entry::getSeq).containsExactly(2L, 3L);
+            assertThat(pending.get(1).getTitle()).isEqualTo("third");
+            assertThat(pending.get(1).getContent()).isEqualTo("three");
+            assertThat(pending.get(1).getUserId()).isEqualTo(9);
+            assertThat(pending.get(1).getPostId()).isEqualTo(103);
+            assertThat(journal.append(104, "fourth", "four", 7)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void entriesACheckpointCoversAreSkipped() throws Exception {
+        Path file = dir.resolve("journal");
+        try (PostJournal journal = new PostJournal(file, CAPACITY, true)) {
+            journal.append(105, "first", "one", 7);
+            journal.append(106, "second", "two", 7);
+        }
+
+        try (PostJournal journal = new PostJournal(file, CAPACITY, true)) {
+            journal.skipApplied(1);
+            assertThat(journal.take(10, Duration.ZERO)).extracting(PostJournal.Entry::getSeq).containsExactly(2L);
+        }
+        try (PostJournal journal = new PostJournal(file, CAPACITY, true)) {
+            journal.skipApplied(5);
+            assertThat(journal.pendingCount()).isZero();
+            assertThat(journal.append(107, "third", "three", 7)).isEqualTo(6);
+        }
+    }
+
+    @Test
+    void spaceIsReusedAcrossTheEndOfTheFile() throws Exception {
+        Path file = dir.resolve("journal");
+        String content = "x".repeat(900);
+        try (PostJournal journal = new PostJournal(file, CAPACITY, false)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(100 + i, "post " + i, content, i);
+                journal.release(journal.take(1, Duration.ZERO).get(0));
+            }
+            journal.append(109, "wrapped 1", content, 1);
+            journal.append(110, "wrapped 2", content, 2);
+        }
+
+        try (PostJournal journal = new PostJournal(file, CAPACITY, false)) {
+            assertThat(journal.take(10, Duration.ZERO)).extracting(PostJournal.Entry::getTitle).containsExactly("wrapped 1", "wrapped 2");
+        }
+    }
+
+    @Test
+    void aWrappedJournalKeepsItsSizeWhenReopenedWithALargerCapacity() throws Exception {
+        Path file = dir.resolve("journal");
+        String content = "x".repeat(900);
+        try (PostJournal journal = new PostJournal(file, CAPACITY, true)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(100 + i, "post " + i, content, i);
+                journal.release(journal.take(1, Duration.ZERO).get(0));
+            }
+            journal.append(110, "wrapped 1", content, 1);
+            journal.append(111, "wrapped 2", content, 2);
+        }
+
+        try (PostJournal journal = new PostJournal(file, 4 * CAPACITY, true)) {
+            assertThat(journal.take(10, Duration.ZERO)).extracting(PostJournal.Entry::getTitle).containsExactly("wrapped 1", "wrapped 2");
+            assertThat(journal.append(112, "after reopening", "three", 3)).isEqualTo(13);
+        }
+        assertThat(Files.size(file)).isEqualTo(CAPACITY);
+    }
+
+    @Test
+    void aFullJournalRejectsAppendsUntilReleased() throws Exception {
+        try (PostJournal journal = new PostJournal(dir.resolve("journal"), CAPACITY, false)) {
+            String content = "x".repeat(1500);
+            journal.append(111, "one", content, 1);
+            journal.append(112, "two", content, 1);
+
+            assertThatThrownBy(() -> journal.append(113, "three", content, 1)).isInstanceOf(ServiceUnavailableException.class);
+            journal.release(journal.take(1, Duration.ZERO).get(0));
+            assertThat(journal.append(114, "three", content, 1)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void concurrentAppendsAreAllOnDiskWhenTheyReturn() throws Exception {
+        Path file = dir.resolve("journal");
+        int threads = 8;
+        int perThread = 20;
+        try (PostJournal journal = new PostJournal(file, 1 << 20, true)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> appends = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long userId = t;
+                appends.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(userId * perThread + i, "post " + i, "content", userId);
+                    }
+                }));
+            }
+            for (Future<?> append : appends) {
+                append.get(10, TimeUnit.SECONDS);
+            }
+            pool.shutdown();
+        }
+
+        try (PostJournal journal = new PostJournal(file, 1 << 20, true)) {
+            List<PostJournal.Entry> pending = journal.take(threads * perThread, Duration.ZERO);
+            assertThat(pending).extracting(PostJournal.Entry::getSeq)
+                    .containsExactlyElementsOf(LongStream.rangeClosed(1, threads * perThread).boxed().collect(Collectors.toList()));
+            assertThat(pending).extracting(PostJournal.Entry::getPostId).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void anAppendWhoseForceFailsIsNotHandedToTheWriter() throws Exception {
+        AtomicBoolean failForces = new AtomicBoolean(true);
+        try (PostJournal journal = new PostJournal(dir.resolve("journal"), CAPACITY, true) {
+            @Override
+            void force(long position, int length) {
+                if (failForces.get()) {
+                    throw new UncheckedIOException(new IOException("disk gone"));
+                }
+                super.force(position, length);
+            }
+        }) {
+            assertThatThrownBy(() -> journal.append(101, "failed", "one", 7)).isInstanceOf(UncheckedIOException.class);
+            assertThat(journal.pendingCount()).isZero();
+
+            failForces.set(false);
+            journal.append(102, "forced", "two", 7);
+            assertThat(journal.take(10, Duration.ZERO)).extracting(PostJournal.Entry::getTitle).containsExactly("forced");
+        }
+    }
+
+    @Test
+    void replayStopsAtATornRecord() throws Exception {
+        Path file = dir.resolve("journal");
+        try (PostJournal journal = new PostJournal(file, CAPACITY, true)) {
+            journal.append(115, "first", "one", 7);
+            journal.append(116, "second", "two", 7);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // Last byte of the second record's content
+            long end = 64 + 2 * (16 + 24) + "first".length() + "one".length() + "second".length() + "two".length();
+            channel.write(ByteBuffer.wrap(new byte[]{'?'}), end - 1);
+        }
+
+        try (PostJournal journal = new PostJournal(file, CAPACITY, true)) {
+            assertThat(journal.take(10, Duration.ZERO)).extracting(PostJournal.Entry::getSeq).containsExactly(1L);
+            assertThat(journal.append(117, "again", "two", 7)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void tooLargeAPostIsRejected() throws IOException {
+        try (PostJournal journal = new PostJournal(dir.resolve("journal"), CAPACITY, false)) {
+            assertThatThrownBy(() -> journal.append(118, "big", "x".repeat(CAPACITY), 1))
+                    .isInstanceOf(javax.validation.ConstraintViolationException.class);
+        }
+    }
+}
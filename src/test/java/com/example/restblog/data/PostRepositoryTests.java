@@ -0,0 +1,140 @@
+package com.example.restblog.data;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.restblog.data.PostRepositoryTests$RecordingInspector"})
+class PostRepositoryTests {
+
+    private static final int AUTHORS = 5;
+    private static final int POSTS = 30;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        User[] authors = new User[AUTHORS];
+        for (int i = 0; i < AUTHORS; i++) {
+            authors[i] = entityManager.persist(new User(0, "author" + i + "@test.com", "author" + i, "pw", User.Role.USER, null, 0));
+        }
+        for (int i = 0; i < POSTS; i++) {
+            entityManager.persist(new Post(0, "title " + i, "content " + i, authors[i % AUTHORS], 0));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listingFetchesPostsAndAuthorsInOneStatement() {
+        Slice<Post> page = postRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, POSTS));
+
+        assertThat(page.getContent()).hasSize(POSTS);
+        page.getContent().forEach(post -> {
+            assertThat(Hibernate.isInitialized(post.getUser())).isTrue();
+            assertThat(post.getUser().getEmail()).isNotNull();
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keysetPagesAreContiguous() {
+        Slice<Post> first = postRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 10));
+        long cursor = first.getContent().get(first.getNumberOfElements() - 1).getId();
+        Slice<Post> second = postRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, 10));
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent().get(0).getId()).isGreaterThan(cursor);
+        assertThat(second.getContent()).extracting(Post::getTitle).doesNotContainAnyElementsOf(
+                first.getContent().stream().map(Post::getTitle).collect(Collectors.toList()));
+    }
+
+    @Test
+    void summariesCarryOnlyAnExcerptOfTheContent() {
+        Slice<PostSummary> page = postRepository.findSummariesByIdGreaterThan(0, 4, PageRequest.of(0, POSTS));
+
+        assertThat(page.getContent()).hasSize(POSTS);
+        assertThat(page.getContent()).allSatisfy(summary -> {
+            assertThat(summary.getExcerpt()).isEqualTo("cont");
+            assertThat(summary.getAuthor()).startsWith("author");
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void streamVisitsEveryPostInIdOrder() {
+        try (Stream<Post> posts = postRepository.streamAllByOrderById()) {
+            List<Long> ids = posts.peek(post -> assertThat(Hibernate.isInitialized(post.getUser())).isTrue())
+                    .map(Post::getId)
+                    .collect(Collectors.toList());
+            assertThat(ids).hasSize(POSTS).isSorted();
+        }
+    }
+
+    @Test
+    void pageVersionsFollowUpdatesOfPostsAndAuthors() {
+        Post post = postRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 1)).getContent().get(0);
+        post.setTitle("edited");
+        post.getUser().setUsername("renamed");
+        postRepository.saveAndFlush(post);
+
+        Slice<PostVersion> page = postRepository.findVersionsByIdGreaterThan(0, PageRequest.of(0, 10));
+
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(page.getContent().get(0).getId()).isEqualTo(post.getId());
+        assertThat(page.getContent().get(0).getPostVersion()).isEqualTo(1);
+        assertThat(page.getContent().get(0).getAuthorVersion()).isEqualTo(1);
+        assertThat(page.getContent().get(1).getPostVersion()).isZero();
+    }
+
+    @Test
+    void updatesWriteOnlyTheChangedColumns() {
+        Post post = postRepository.findAll().get(0);
+        post.setTitle("retitled");
+        RecordingInspector.statements.clear();
+        postRepository.saveAndFlush(post);
+
+        assertThat(RecordingInspector.statements).filteredOn(sql -> sql.startsWith("update"))
+                .singleElement().satisfies(sql -> assertThat(sql).contains("title=").doesNotContain("content=", "user_id="));
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
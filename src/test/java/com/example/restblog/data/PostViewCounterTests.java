@@ -0,0 +1,127 @@
+package com.example.restblog.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostViewCounterTests {
+
+    @Autowired
+    private PostStatsRepository statsRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean failWrites = new AtomicBoolean();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private PostViewCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (failWrites.get()) {
+                    throw new DataAccessResourceFailureException("database down");
+                }
+                return super.batchUpdate(sql, batchArgs);
+            }
+        };
+        counter = new PostViewCounter(statsRepository, jdbcTemplate, transactionManager, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statsRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentViewsAreAllFlushed() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 30_000; i++) {
+                    counter.increment(i % 3);
+                    if (i % 10_000 == 0) {
+                        counter.flush();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        counter.flush();
+
+        assertThat(statsRepository.findAll()).extracting(PostStats::getViews).containsOnly(40_000L);
+    }
+
+    @Test
+    void viewsMergeStoredAndUnflushedCounts() {
+        increment(1, 3);
+        counter.flush();
+        increment(1, 2);
+
+        assertThat(statsRepository.findById(1L)).get().extracting(PostStats::getViews).isEqualTo(3L);
+        assertThat(counter.views(1)).isEqualTo(5);
+        assertThat(counter.views(2)).isZero();
+
+        counter.flush();
+        assertThat(statsRepository.findById(1L)).get().extracting(PostStats::getViews).isEqualTo(5L);
+        assertThat(counter.views(1)).isEqualTo(5);
+    }
+
+    @Test
+    void viewsOfAFailedFlushAreWrittenByTheNext() {
+        increment(1, 3);
+        counter.flush();
+        counter.flush(); // post 1 idle: its counter is dropped
+        increment(1, 1);
+        increment(2, 4);
+        failWrites.set(true);
+        counter.flush();
+
+        failWrites.set(false);
+        counter.flush();
+
+        assertThat(statsRepository.findById(1L)).get().extracting(PostStats::getViews).isEqualTo(4L);
+        assertThat(statsRepository.findById(2L)).get().extracting(PostStats::getViews).isEqualTo(4L);
+    }
+
+    @Test
+    void stopFlushesWhatIsLeft() throws InterruptedException {
+        counter.start();
+        increment(7, 2);
+        counter.stop();
+
+        assertThat(statsRepository.findById(7L)).get().extracting(PostStats::getViews).isEqualTo(2L);
+    }
+
+    private void increment(long postId, int times) {
+        for (int i = 0; i < times; i++) {
+            counter.increment(postId);
+        }
+    }
+}
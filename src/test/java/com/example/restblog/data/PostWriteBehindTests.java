@@ -0,0 +1,149 @@
+package com.example.restblog.data;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostWriteBehindTests {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostJournalCheckpointRepository checkpoints;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path dir;
+
+    private User author;
+
+    @BeforeEach
+    void seed() {
+        author = userRepository.save(new User(0, "writer@test.com", "writer", "pw", User.Role.USER, null, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+        checkpoints.deleteAll();
+    }
+
+    @Test
+    void acceptedPostsAreWrittenInTheBackground() throws Exception {
+        PostWriteBehind writeBehind = writeBehind();
+        writeBehind.start();
+        try {
+            long first = writeBehind.submit("first", "one", author.getId());
+            long second = writeBehind.submit("second", "two", author.getId());
+
+            awaitUntil(() -> postRepository.count() == 2);
+            awaitUntil(() -> checkpoints.findAll().stream().anyMatch(checkpoint -> checkpoint.getAppliedSeq() == 2));
+            assertThat(postRepository.findById(first)).get().extracting(Post::getTitle).isEqualTo("first");
+            assertThat(postRepository.findById(second)).get().extracting(Post::getTitle).isEqualTo("second");
+        } finally {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void replayWritesOnlyWhatTheCheckpointDoesNotCover() throws Exception {
+        try (PostJournal journal = new PostJournal(dir.resolve("journal"), 1 << 20, true)) {
+            journal.append(5001, "applied before the crash", "one", author.getId());
+            journal.append(5002, "lost in the crash", "two", author.getId());
+            checkpoints.save(new PostJournalCheckpoint(journal.getJournalId(), 1));
+        }
+
+        PostWriteBehind writeBehind = writeBehind();
+        writeBehind.start();
+        try {
+            awaitUntil(() -> checkpoints.findAll().get(0).getAppliedSeq() == 2);
+            assertThat(postRepository.findAll()).extracting(Post::getTitle).containsExactly("lost in the crash");
+        } finally {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void replayWithoutACheckpointSkipsPostsAlreadyWritten() throws Exception {
+        try (PostJournal journal = new PostJournal(dir.resolve("journal"), 1 << 20, true)) {
+            journal.append(5001, "applied before the crash", "one", author.getId());
+            journal.append(5002, "lost in the crash", "two", author.getId());
+        }
+        jdbcTemplate.update("insert into posts (id, title, content, user_id, version) values (5001, 'applied before the crash', 'one', ?, 0)", author.getId());
+
+        PostWriteBehind writeBehind = writeBehind();
+        writeBehind.start();
+        try {
+            awaitUntil(() -> checkpoints.findAll().stream().anyMatch(checkpoint -> checkpoint.getAppliedSeq() == 2));
+            assertThat(postRepository.findAll()).extracting(Post::getId).containsExactlyInAnyOrder(5001L, 5002L);
+        } finally {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void postsThatCannotBeWrittenAreDroppedWithoutHoldingUpTheRest() throws Exception {
+        PostWriteBehind writeBehind = writeBehind();
+        writeBehind.start();
+        try {
+            writeBehind.submit("first", "one", author.getId());
+            writeBehind.submit("orphan", "two", author.getId() + 1000);
+            writeBehind.submit("third", "three", author.getId());
+
+            awaitUntil(() -> checkpoints.findAll().stream().anyMatch(checkpoint -> checkpoint.getAppliedSeq() == 3));
+            assertThat(postRepository.findAll()).extracting(Post::getTitle).containsExactlyInAnyOrder("first", "third");
+        } finally {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void journalsOfTwoGigabytesOrMoreAreRejected() {
+        assertThatThrownBy(() -> new PostWriteBehind(entityManagerFactory, jdbcTemplate, checkpoints, transactionManager, new SimpleMeterRegistry(),
+                dir.resolve("journal").toString(), 2048, true, 500, 50))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private PostWriteBehind writeBehind() throws Exception {
+        return new PostWriteBehind(entityManagerFactory, jdbcTemplate, checkpoints, transactionManager, new SimpleMeterRegistry(),
+                dir.resolve("journal").toString(), 1, true, 500, 50);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
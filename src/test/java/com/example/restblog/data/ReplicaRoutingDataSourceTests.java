@@ -0,0 +1,110 @@
+package com.example.restblog.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two embedded H2 databases stand in for the primary and a replica that never catches up, so every read shows
+ * which side served it.
+ */
+class ReplicaRoutingDataSourceTests {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofSeconds(5), nanos::get));
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+        String readFrom = readOnlyTransaction.execute(status -> server());
+        String writtenTo = writeTransaction.execute(status -> server());
+
+        assertThat(readFrom).isEqualTo("replica");
+        assertThat(writtenTo).isEqualTo("primary");
+    }
+
+    @Test
+    void writersReadTheirOwnWritesUntilTheLagWindowPasses() {
+        signIn("writer@test.com");
+        writeTransaction.executeWithoutResult(status -> jdbc.update("insert into marker values ('written')"));
+
+        assertThat(read()).containsExactly("primary", "written");
+        nanos.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertThat(read()).containsExactly("replica");
+    }
+
+    @Test
+    void otherCallersAndRolledBackWritesStayOnTheReplica() {
+        signIn("writer@test.com");
+        writeTransaction.executeWithoutResult(status -> jdbc.update("insert into marker values ('written')"));
+        signIn("reader@test.com");
+        assertThat(read()).containsExactly("replica");
+
+        signIn("failed@test.com");
+        writeTransaction.executeWithoutResult(status -> {
+            jdbc.update("insert into marker values ('rolled back')");
+            status.setRollbackOnly();
+        });
+        assertThat(read()).containsExactly("replica");
+    }
+
+    private List<String> read() {
+        return readOnlyTransaction.execute(status -> jdbc.queryForList("select name from marker order by name", String.class));
+    }
+
+    private String server() {
+        return jdbc.queryForObject("select name from marker where name in ('primary', 'replica')", String.class);
+    }
+
+    private static void signIn(String name) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(name, null, List.of()));
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName(name).generateUniqueName(false).build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("create table marker (name varchar(20))");
+        jdbc.update("insert into marker values (?)", name);
+        return database;
+    }
+}
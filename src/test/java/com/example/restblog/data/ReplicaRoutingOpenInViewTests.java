@@ -0,0 +1,147 @@
+package com.example.restblog.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The whole application on a primary and two replica H2 databases, with open-in-view on as in production. The
+ * replicas get the schema and the seeded rows but never any later change, so each read shows which side served it.
+ * The replicas hold different versions of the seeded post, as if one lagged behind the other.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=" + ReplicaRoutingOpenInViewTests.PRIMARY,
+        "spring.datasource.username=sa",
+        "replica.datasource.urls=" + ReplicaRoutingOpenInViewTests.REPLICA + "," + ReplicaRoutingOpenInViewTests.LAGGING_REPLICA,
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.open-in-view=true"
+})
+class ReplicaRoutingOpenInViewTests {
+
+    static final String PRIMARY = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    static final String LAGGING_REPLICA = "jdbc:h2:mem:routing-lagging-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY, "sa", ""));
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA, "sa", ""));
+    private final JdbcTemplate laggingReplica = new JdbcTemplate(new DriverManagerDataSource(LAGGING_REPLICA, "sa", ""));
+
+    @BeforeEach
+    void seed() {
+        for (JdbcTemplate database : List.of(replica, laggingReplica)) {
+            if (database.queryForObject("select count(*) from information_schema.tables where table_schema = 'PUBLIC' and table_name = 'USERS'", Integer.class) == 0) {
+                primary.queryForList("script nodata", String.class).forEach(database::execute);
+            }
+        }
+        String password = passwordEncoder.encode("pw");
+        for (JdbcTemplate database : List.of(primary, replica, laggingReplica)) {
+            database.update("delete from posts");
+            database.update("delete from users");
+            database.update("insert into users (id, email, username, password, role, version) values (1, 'owner@test.com', 'owner', ?, 'USER', 0)", password);
+            boolean lagging = database == laggingReplica;
+            database.update("insert into posts (id, title, content, user_id, version) values (1, ?, 'content', 1, ?)", lagging ? "old" : "new", lagging ? 0 : 1);
+        }
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void aWriteAfterAReadInTheSameRequestGoesToThePrimary() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(logIn());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        HttpEntity<String> rename = new HttpEntity<>("{\"email\":\"owner@test.com\",\"username\":\"renamed\",\"role\":\"USER\"}", headers);
+        entityManagerFactory.getCache().evictAll();
+
+        // isOwner() reads the user from the database in a read-only transaction before the save
+        assertThat(rest.exchange("/api/users/1", HttpMethod.PUT, rename, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        assertThat(primary.queryForObject("select username from users where id = 1", String.class)).isEqualTo("renamed");
+        assertThat(replica.queryForObject("select username from users where id = 1", String.class)).isEqualTo("owner");
+        assertThat(laggingReplica.queryForObject("select username from users where id = 1", String.class)).isEqualTo("owner");
+    }
+
+    @Test
+    void aListingsEtagComesFromTheReplicaThatServedIt() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        Set<String> titles = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            ResponseEntity<JsonNode> page = rest.exchange("/api/posts", HttpMethod.GET, new HttpEntity<>(headers), JsonNode.class);
+            String title = page.getBody().at("/content/0/title").asText();
+            titles.add(title);
+            assertThat(page.getHeaders().getETag()).as(title).isEqualTo(listingEtag(title.equals("old") ? 0 : 1));
+        }
+        assertThat(titles).containsExactlyInAnyOrder("old", "new");
+    }
+
+    @Test
+    void replicaReadsAreNotCached() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        primary.update("update users set username = 'moved on' where id = 1");
+
+        String fromReplica = readOnly.execute(status -> userRepository.findById(1L).orElseThrow().getUsername());
+        assertThat(fromReplica).isEqualTo("owner");
+        assertThat(entityManagerFactory.getCache().contains(User.class, 1L)).isFalse();
+
+        String fromPrimary = new TransactionTemplate(transactionManager).execute(status -> userRepository.findById(1L).orElseThrow().getUsername());
+        assertThat(fromPrimary).isEqualTo("moved on");
+        assertThat(entityManagerFactory.getCache().contains(User.class, 1L)).isTrue();
+    }
+
+    // PostsController's ETag for a single page holding post 1 by user 1
+    private static String listingEtag(long postVersion) {
+        String versions = "false,1:" + postVersion + ":0";
+        return "\"posts-" + DigestUtils.md5DigestAsHex(versions.getBytes(StandardCharsets.US_ASCII)) + "\"";
+    }
+
+    private String logIn() {
+        MultiValueMap<String, String> login = new LinkedMultiValueMap<>();
+        login.add("grant_type", "password");
+        login.add("username", "owner@test.com");
+        login.add("password", "pw");
+        JsonNode token = rest.withBasicAuth("rest-blog-client", "secret").postForObject("/oauth/token", login, JsonNode.class);
+        return token.get("access_token").asText();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.restblog.data;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs outside a test transaction, so every repository call gets a fresh persistence context and a second read can
+ * only be answered by the second-level cache or the database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(SecondLevelCacheConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private User author;
+    private Post post;
+
+    @BeforeEach
+    void seed() {
+        author = userRepository.save(new User(0, "cached@test.com", "cached", "pw", User.Role.USER, null, 0));
+        post = postRepository.save(new Post(0, "title", "content", author, 0));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedLookupsAreServedFromTheEntityRegions() {
+        userRepository.findById(author.getId());
+        postRepository.findById(post.getId());
+        long statements = statistics.getPrepareStatementCount();
+
+        assertThat(userRepository.findById(author.getId())).get().extracting(User::getEmail).isEqualTo("cached@test.com");
+        assertThat(postRepository.findById(post.getId())).get().extracting(Post::getTitle).isEqualTo("title");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        assertThat(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfiguration.USERS).getHitCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfiguration.POSTS).getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void saveReplacesTheCachedEntity() {
+        Post cached = postRepository.findById(post.getId()).orElseThrow();
+        cached.setTitle("retitled");
+        postRepository.save(cached);
+        statistics.clear();
+
+        assertThat(postRepository.findById(post.getId())).get().extracting(Post::getTitle).isEqualTo("retitled");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void deleteByIdEvictsTheCachedEntity() {
+        postRepository.findById(post.getId());
+        postRepository.deleteById(post.getId());
+        statistics.clear();
+
+        assertThat(postRepository.findById(post.getId())).isEmpty();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isZero();
+    }
+
+    @Test
+    void emailQueriesAreCachedUntilUsersAreWritten() {
+        assertThat(userRepository.findByEmail("cached@test.com")).isPresent();
+        assertThat(userRepository.existsByEmail("new@test.com")).isFalse();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertThat(userRepository.findByEmail("cached@test.com")).isPresent();
+        assertThat(userRepository.existsByEmail("new@test.com")).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(2);
+
+        User renamed = userRepository.findById(author.getId()).orElseThrow();
+        renamed.setEmail("new@test.com");
+        userRepository.save(renamed);
+
+        assertThat(userRepository.findByEmail("cached@test.com")).isEmpty();
+        assertThat(userRepository.existsByEmail("new@test.com")).isTrue();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void deletedUsersDropOutOfTheQueryCache() {
+        assertThat(userRepository.existsByEmail("cached@test.com")).isTrue();
+        postRepository.deleteById(post.getId());
+        userRepository.deleteById(author.getId());
+
+        assertThat(userRepository.existsByEmail("cached@test.com")).isFalse();
+        assertThat(userRepository.findByEmail("cached@test.com")).isEmpty();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.restblog.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class UserEmailIndexTests {
+
+    private UserRepository repository;
+    private UserEmailIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserRepository.class);
+        when(repository.findAllEmails()).thenReturn(List.of(
+                email(1, "alice@example.com"),
+                email(2, "Bob@Example.org"),
+                email(3, "carol@test.com"),
+                email(4, "aaaa@example.com"),
+                email(5, "dave@example.com")));
+        index = new UserEmailIndex(repository);
+    }
+
+    @Test
+    void findsSubstringsIgnoringCase() {
+        assertThat(index.search("EXAMPLE", 0, 10)).containsExactly(1L, 2L, 4L, 5L);
+        assertThat(index.search("ob@ex", 0, 10)).containsExactly(2L);
+        assertThat(index.search("aaa", 0, 10)).containsExactly(4L);
+        assertThat(index.search("nobody", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void trigramsMustAppearContiguously() {
+        // "ali" and "com" are both in alice@example.com, but not as one substring
+        assertThat(index.search("alicom", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void shortQueriesScanTheEmails() {
+        assertThat(index.search("e.", 0, 10)).containsExactly(1L, 2L, 4L, 5L);
+        assertThat(index.search("@", 3, 10)).containsExactly(4L, 5L);
+    }
+
+    @Test
+    void pagesAfterTheGivenId() {
+        assertThat(index.search("example", 0, 2)).containsExactly(1L, 2L);
+        assertThat(index.search("example", 2, 2)).containsExactly(4L, 5L);
+        assertThat(index.search("example", 5, 2)).isEmpty();
+    }
+
+    @Test
+    void tracksWritesAfterTheFirstBuild() {
+        index.search("example", 0, 10);
+        index.put(6, "erin@example.com");
+        index.put(1, "alice@elsewhere.net");
+        index.remove(5);
+
+        assertThat(index.search("example", 0, 10)).containsExactly(2L, 4L, 6L);
+        assertThat(index.search("elsewhere", 0, 10)).containsExactly(1L);
+        verify(repository, times(1)).findAllEmails();
+    }
+
+    @Test
+    void rebuildReloadsFromTheRepository() {
+        index.search("example", 0, 10);
+        index.rebuild();
+        index.search("example", 0, 10);
+
+        verify(repository, times(2)).findAllEmails();
+    }
+
+    @Test
+    void emailsChangedOverAndOverStayFindable() {
+        index.search("example", 0, 10);
+        for (int i = 0; i < 100; i++) {
+            index.put(1, "alice" + i + "@example.com");
+            index.put(2, i % 2 == 0 ? "bob@example.org" : "bob@elsewhere.net");
+        }
+
+        assertThat(index.search("alice99", 0, 10)).containsExactly(1L);
+        assertThat(index.search("alice98", 0, 10)).isEmpty();
+        assertThat(index.search("example", 0, 10)).containsExactly(1L, 4L, 5L);
+        assertThat(index.search("elsewhere", 0, 10)).containsExactly(2L);
+    }
+
+    @Test
+    void searchesRacingRebuildsSeeACompleteIndex() throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread searcher = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20_000; i++) {
+                    assertThat(index.search("example", 0, 10)).hasSize(4);
+                }
+            } catch (Throwable ex) {
+                failure.set(ex);
+            }
+        });
+        searcher.start();
+        while (searcher.isAlive()) {
+            index.rebuild();
+        }
+
+        assertThat(failure.get()).isNull();
+    }
+
+    private static UserEmail email(long id, String email) {
+        return new UserEmail() {
+            @Override
+            public long getId() {
+                return id;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.restblog.errors;
+
+import com.example.restblog.data.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.validation.FieldError;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ApiErrorWriterTests {
+
+    private ObjectMapper mapper;
+    private ApiErrorWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = new ApiErrorWriter(mapper);
+    }
+
+    @Test
+    void templatedShapesMatchTheMapper() throws Exception {
+        assertSameAsMapper(error(HttpStatus.NOT_FOUND, "User was not found for parameters {id=42}", null));
+        assertSameAsMapper(error(HttpStatus.UNAUTHORIZED, "Full authentication is required", "Full authentication is required"));
+        assertSameAsMapper(error(HttpStatus.SERVICE_UNAVAILABLE, null, null));
+        assertSameAsMapper(error(HttpStatus.BAD_REQUEST, null, "only a debug message"));
+        // Second use of a shape comes from the cached template
+        assertSameAsMapper(error(HttpStatus.NOT_FOUND, "User was not found for parameters {email=x@y.z}", null));
+    }
+
+    @Test
+    void valuesAreEscaped() throws Exception {
+        assertSameAsMapper(error(HttpStatus.NOT_FOUND, "quote \" backslash \\ newline \n tab \t ctrl \u0001 é ✓ 😀", "</script>"));
+    }
+
+    @Test
+    void timestampsFollowTheErrorAcrossSeconds() throws Exception {
+        ApiError first = error(HttpStatus.NOT_FOUND, "a", null);
+        first.setTimestamp(LocalDateTime.of(2021, 6, 1, 13, 59, 59, 999_000_000));
+        assertSameAsMapper(first);
+        ApiError second = error(HttpStatus.NOT_FOUND, "a", null);
+        second.setTimestamp(LocalDateTime.of(2021, 6, 1, 14, 0, 0));
+        assertSameAsMapper(second);
+    }
+
+    @Test
+    void subErrorsGoThroughTheMapper() throws Exception {
+        ApiError apiError = error(HttpStatus.BAD_REQUEST, "Validation error", null);
+        apiError.addValidationErrors(List.of(new FieldError("user", "email", "nope", false, null, null, "must be a well-formed email address")));
+        assertSameAsMapper(apiError);
+    }
+
+    @Test
+    void entityNotFoundIsStackless() {
+        EntityNotFoundException ex = new EntityNotFoundException(User.class, "id", "42", "email", "a@test.com");
+
+        assertThat(ex.getStackTrace()).isEmpty();
+        assertThat(ex.getMessage()).isEqualTo("User was not found for parameters {id=42, email=a@test.com}");
+        assertThatThrownBy(() -> new EntityNotFoundException(User.class, "id")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertSameAsMapper(ApiError apiError) throws Exception {
+        assertThat(new String(writer.toJson(apiError), StandardCharsets.UTF_8)).isEqualTo(mapper.writeValueAsString(apiError));
+    }
+
+    private static ApiError error(HttpStatus status, String message, String debugMessage) {
+        ApiError apiError = new ApiError(status);
+        apiError.setMessage(message);
+        apiError.setDebugMessage(debugMessage);
+        return apiError;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.restblog.load;
+
+import com.example.restblog.RestBlogApplication;
+import com.example.restblog.data.Post;
+import com.example.restblog.data.PostRepository;
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test. Boots the app on the in-memory "h2" profile, seeds users and posts, logs every user in
+ * through /oauth/token and then drives a weighted mix of API calls from a fixed number of client threads,
+ * printing throughput and latency percentiles per operation plus a latency histogram.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath com.example.restblog.load.LoadTest [option=value ...] [--spring.prop=value ...]"
+ *
+ * Options (defaults in brackets): users [50], posts [1000], concurrency [64], seconds [30], warmup [5],
+ * mix [posts.list=60,posts.create=10,users.one=15,users.search=10,users.list=5],
+ * modes [platform]; "modes=platform,virtual" runs everything once per thread mode (see VirtualThreadConfiguration).
+ * --arguments are passed to the application, e.g. --security.bcrypt.strength=8.
+ */
+public class LoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private final Map<String, String> options;
+    private final String[] appArgs;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private LoadTest(Map<String, String> options, String[] appArgs) {
+        this.options = options;
+        this.appArgs = appArgs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                appArgs.add(arg);
+            } else {
+                String[] pair = arg.split("=", 2);
+                options.put(pair[0], pair.length > 1 ? pair[1] : "");
+            }
+        }
+        LoadTest loadTest = new LoadTest(options, appArgs.toArray(new String[0]));
+        for (String mode : loadTest.option("modes", "platform").split(",")) {
+            loadTest.run(mode.trim());
+        }
+    }
+
+    private void run(String mode) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RestBlogApplication.class)
+                .profiles("h2")
+                .properties("server.port=0", "threads.virtual.enabled=" + mode.equals("virtual"), "rate-limit.enabled=false")
+                .run(appArgs)) {
+            Environment env = context.getEnvironment();
+            String baseUrl = "http://localhost:" + env.getProperty("local.server.port");
+            List<Long> userIds = seedUsers(context, intOption("users", 50));
+            long maxPostId = seedPosts(context, userIds, intOption("posts", 1000));
+            List<Session> sessions = logIn(baseUrl, env, userIds);
+            Mix mix = Mix.parse(option("mix", "posts.list=60,posts.create=10,users.one=15,users.search=10,users.list=5"));
+            int concurrency = intOption("concurrency", 64);
+
+            System.out.printf("%nmode=%s java=%d users=%d posts=%d concurrency=%d%n",
+                    mode, Runtime.version().feature(), userIds.size(), maxPostId, concurrency);
+            drive(baseUrl, sessions, mix, maxPostId, concurrency, Duration.ofSeconds(intOption("warmup", 5)));
+            Results results = drive(baseUrl, sessions, mix, maxPostId, concurrency, Duration.ofSeconds(intOption("seconds", 30)));
+            results.print();
+        }
+    }
+
+    private List<Long> seedUsers(ConfigurableApplicationContext context, int count) {
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD); // one hash, not one BCrypt per user
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new User(0, "load" + i + "@test.com", "load" + i, hash, User.Role.USER, null, 0));
+        }
+        List<Long> ids = new ArrayList<>();
+        context.getBean(UserRepository.class).saveAll(users).forEach(user -> ids.add(user.getId()));
+        return ids;
+    }
+
+    private long seedPosts(ConfigurableApplicationContext context, List<Long> userIds, int count) {
+        PostRepository repository = context.getBean(PostRepository.class);
+        UserRepository users = context.getBean(UserRepository.class);
+        List<User> authors = users.findAllById(userIds);
+        long maxId = 0;
+        List<Post> chunk = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            chunk.add(new Post(0, "Load test post " + i, "Body of load test post " + i + ". ".repeat(20), authors.get(i % authors.size()), 0));
+            if (chunk.size() == 500 || i == count - 1) {
+                for (Post post : repository.saveAll(chunk)) {
+                    maxId = Math.max(maxId, post.getId());
+                }
+                chunk.clear();
+            }
+        }
+        return maxId;
+    }
+
+    private List<Session> logIn(String baseUrl, Environment env, List<Long> userIds) throws Exception {
+        String client = env.getProperty("jwt.clientId", "rest-blog-client") + ":" + env.getProperty("jwt.client-secret", "secret");
+        String basic = "Basic " + Base64.getEncoder().encodeToString(client.getBytes(StandardCharsets.UTF_8));
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            String email = "load" + i + "@test.com";
+            String form = "grant_type=password&username=" + URLEncoder.encode(email, StandardCharsets.UTF_8) + "&password=" + PASSWORD;
+            HttpResponse<String> response = this.client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/oauth/token"))
+                    .header("Authorization", basic)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Login failed for " + email + ": " + response.statusCode() + " " + response.body());
+            }
+            String token = mapper.readTree(response.body()).get("access_token").asText();
+            sessions.add(new Session(userIds.get(i), email, "Bearer " + token));
+        }
+        return sessions;
+    }
+
+    private Results drive(String baseUrl, List<Session> sessions, Mix mix, long maxPostId, int concurrency, Duration duration) throws InterruptedException {
+        Results results = new Results(mix.operations(), duration);
+        long deadline = System.nanoTime() + duration.toNanos();
+        Thread[] workers = new Thread[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            int worker = i;
+            workers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int next = worker;
+                while (System.nanoTime() < deadline) {
+                    Session session = sessions.get(next++ % sessions.size());
+                    String operation = mix.pick(random);
+                    HttpRequest request = request(baseUrl, operation, session, maxPostId, random);
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception ex) {
+                        status = -1;
+                    }
+                    results.record(operation, System.nanoTime() - start, status);
+                }
+            }, "load-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return results;
+    }
+
+    private HttpRequest request(String baseUrl, String operation, Session session, long maxPostId, ThreadLocalRandom random) {
+        HttpRequest.Builder builder;
+        switch (operation) {
+            case "posts.list":
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/posts?limit=20&after=" + random.nextLong(Math.max(1, maxPostId))));
+                break;
+            case "posts.create":
+                String body = String.format("{\"title\":\"Load post %d\",\"content\":\"Written by the load test\",\"user\":{\"id\":%d}}",
+                        random.nextInt(), session.userId);
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/posts"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body));
+                break;
+            case "users.one":
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/" + session.userId));
+                break;
+            case "users.search":
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/search?email=" + URLEncoder.encode(session.email, StandardCharsets.UTF_8)));
+                break;
+            case "users.list":
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/users"));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+        return builder.header("Accept", "application/json")
+                .header("Authorization", session.authorization)
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+
+    private static class Session {
+        private final long userId;
+        private final String email;
+        private final String authorization;
+
+        Session(long userId, String email, String authorization) {
+            this.userId = userId;
+            this.email = email;
+            this.authorization = authorization;
+        }
+    }
+
+    /**
+     * Weighted operation mix, e.g. "posts.list=60,posts.create=10".
+     */
+    private static class Mix {
+        private final String[] operations;
+        private final int[] cumulativeWeights;
+
+        private Mix(String[] operations, int[] cumulativeWeights) {
+            this.operations = operations;
+            this.cumulativeWeights = cumulativeWeights;
+        }
+
+        static Mix parse(String spec) {
+            String[] entries = spec.split(",");
+            String[] operations = new String[entries.length];
+            int[] cumulative = new int[entries.length];
+            int total = 0;
+            for (int i = 0; i < entries.length; i++) {
+                String[] pair = entries[i].trim().split("=");
+                operations[i] = pair[0];
+                total += Integer.parseInt(pair[1]);
+                cumulative[i] = total;
+            }
+            return new Mix(operations, cumulative);
+        }
+
+        String pick(ThreadLocalRandom random) {
+            int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (roll < cumulativeWeights[i]) {
+                    return operations[i];
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        List<String> operations() {
+            return Arrays.asList(operations);
+        }
+    }
+
+    private static class Results {
+        private final Map<String, Histogram> latencies = new LinkedHashMap<>();
+        private final Map<String, AtomicLong> errors = new HashMap<>();
+        private final Histogram all = new ConcurrentHistogram(3);
+        private final Duration duration;
+
+        Results(List<String> operations, Duration duration) {
+            this.duration = duration;
+            for (String operation : operations) {
+                latencies.put(operation, new ConcurrentHistogram(3));
+                errors.put(operation, new AtomicLong());
+            }
+        }
+
+        void record(String operation, long nanos, int status) {
+            long micros = Math.max(1, nanos / 1000);
+            latencies.get(operation).recordValue(micros);
+            all.recordValue(micros);
+            if (status < 200 || status >= 400) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+
+        void print() {
+            double seconds = duration.toMillis() / 1000d;
+            System.out.printf("%-14s %9s %9s %9s %9s %9s %9s %9s %7s%n",
+                    "operation", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+            latencies.forEach((operation, histogram) -> row(operation, histogram, errors.get(operation).get(), seconds));
+            row("all", all, errors.values().stream().mapToLong(AtomicLong::get).sum(), seconds);
+            System.out.println("\nLatency distribution, all operations (ms):");
+            all.outputPercentileDistribution(System.out, 2, 1000.0);
+        }
+
+        private static void row(String name, Histogram histogram, long errors, double seconds) {
+            System.out.printf("%-14s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n", name, histogram.getTotalCount(),
+                    histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0, errors);
+        }
+    }
+}
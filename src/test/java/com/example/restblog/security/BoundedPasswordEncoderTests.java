@@ -0,0 +1,83 @@
+package com.example.restblog.security;
+
+import com.example.restblog.errors.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTests {
+
+    @Test
+    void rejectsWhenPoolAndQueueAreFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingEncoder(started, release), 1, 1, false, new SimpleMeterRegistry());
+        try {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+            while (encoder.queueDepth() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThatThrownBy(() -> encoder.encode("c")).isInstanceOf(ServiceUnavailableException.class);
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        } finally {
+            encoder.shutdown();
+        }
+    }
+
+    @Test
+    void upgradesWeakerHashesOnlyWhenRehashIsEnabled() {
+        String weak = new BCryptPasswordEncoder(4).encode("secret");
+        BoundedPasswordEncoder migrating = new BoundedPasswordEncoder(new BCryptPasswordEncoder(6), 1, 1, true, new SimpleMeterRegistry());
+        BoundedPasswordEncoder steady = new BoundedPasswordEncoder(new BCryptPasswordEncoder(6), 1, 1, false, new SimpleMeterRegistry());
+        try {
+            assertThat(migrating.matches("secret", weak)).isTrue();
+            assertThat(migrating.upgradeEncoding(weak)).isTrue();
+            assertThat(migrating.upgradeEncoding(migrating.encode("secret"))).isFalse();
+            assertThat(steady.upgradeEncoding(weak)).isFalse();
+        } finally {
+            migrating.shutdown();
+            steady.shutdown();
+        }
+    }
+
+    private static class BlockingEncoder implements PasswordEncoder {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        BlockingEncoder(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.restblog.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CachingJwtTokenServicesTests {
+
+    private JwtAccessTokenConverter converter;
+    private ResourceServerTokenServices delegate;
+    private CachingJwtTokenServices tokenServices;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        converter = new JwtAccessTokenConverter();
+        converter.setSigningKey("test-key");
+        converter.afterPropertiesSet();
+        DefaultTokenServices defaults = new DefaultTokenServices();
+        defaults.setTokenStore(new JwtTokenStore(converter));
+        delegate = spy(defaults);
+        tokenServices = new CachingJwtTokenServices(delegate, 100, Duration.ofHours(1));
+    }
+
+    @Test
+    void verifiesEachTokenOnce() {
+        String token = token(Duration.ofMinutes(5));
+
+        OAuth2Authentication first = tokenServices.loadAuthentication(token);
+        OAuth2Authentication second = tokenServices.loadAuthentication(token);
+
+        assertThat(second.getName()).isEqualTo("a@test.com");
+        assertThat(second.getOAuth2Request()).isEqualTo(first.getOAuth2Request());
+        verify(delegate, times(1)).loadAuthentication(token);
+    }
+
+    @Test
+    void eachLoadGetsItsOwnAuthentication() {
+        String token = token(Duration.ofMinutes(5));
+        tokenServices.loadAuthentication(token);
+
+        OAuth2Authentication first = tokenServices.loadAuthentication(token);
+        first.setDetails("first request");
+        OAuth2Authentication second = tokenServices.loadAuthentication(token);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getDetails()).isNull();
+        assertThat(second.isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void doesNotServeTokensPastTheirExpiry() throws Exception {
+        // exp is whole seconds, so allow a full second of slack before the first load
+        String token = token(Duration.ofSeconds(2));
+        tokenServices.loadAuthentication(token);
+
+        Thread.sleep(2100);
+
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    void rejectsTamperedTokensEvenWhenTheOriginalIsCached() {
+        String token = token(Duration.ofMinutes(5));
+        tokenServices.loadAuthentication(token);
+
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token + "x")).isInstanceOf(InvalidTokenException.class);
+    }
+
+    private String token(Duration validity) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "rest-blog-client", AuthorityUtils.createAuthorityList("USER"),
+                true, Set.of("read"), Set.of("api"), null, null, null);
+        OAuth2Authentication authentication = new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("a@test.com", null, AuthorityUtils.createAuthorityList("USER")));
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("unused");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + validity.toMillis()));
+        return converter.enhance(accessToken, authentication).getValue();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.restblog.security;
+
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("h2")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "rate-limit.token.permits-per-second=0.01",
+        "rate-limit.token.burst=2",
+        "rate-limit.api-writes.permits-per-second=0.01",
+        "rate-limit.api-writes.burst=2"
+})
+class RateLimitFilterTests {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void tokenRequestsAndApiWritesOverTheLimitGetA429() {
+        User user = userRepository.save(new User(0, "limited@test.com", "limited", passwordEncoder.encode("pw"), User.Role.USER, null, 0));
+        String token = logIn("pw").getBody().get("access_token").asText();
+        assertThat(logIn("wrong").getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        ResponseEntity<JsonNode> limited = logIn("pw");
+        assertThat(limited.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(limited.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+        assertThat(limited.getBody().at("/apierror/status").asText()).isEqualTo("TOO_MANY_REQUESTS");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        HttpEntity<String> rename = new HttpEntity<>("{\"email\":\"limited@test.com\",\"username\":\"renamed\",\"role\":\"USER\"}", headers);
+        String url = "/api/users/" + user.getId();
+        for (int i = 0; i < 2; i++) {
+            assertThat(rest.exchange(url, HttpMethod.PUT, rename, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        assertThat(rest.exchange(url, HttpMethod.PUT, rename, String.class).getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rest.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        HttpEntity<String> batch = new HttpEntity<>("{\"self\":\"" + url + "\"}", headers);
+        assertThat(rest.exchange("/api/batch", HttpMethod.POST, batch, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private ResponseEntity<JsonNode> logIn(String password) {
+        MultiValueMap<String, String> login = new LinkedMultiValueMap<>();
+        login.add("grant_type", "password");
+        login.add("username", "limited@test.com");
+        login.add("password", password);
+        return rest.withBasicAuth("rest-blog-client", "secret").postForEntity("/oauth/token", login, JsonNode.class);
+    }
+}
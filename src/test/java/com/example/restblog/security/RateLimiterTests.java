@@ -0,0 +1,62 @@
+package com.example.restblog.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTests {
+
+    private final AtomicLong nanos = new AtomicLong(-Duration.ofHours(1).toNanos()); // nanoTime may be negative
+
+    private final RateLimiter limiter = new RateLimiter(2, 3, nanos::get);
+
+    @Test
+    void aBurstIsAllowedAndThenTheRefillRate() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("client")).isZero();
+        }
+        assertThat(limiter.tryAcquire("client")).isEqualTo(Duration.ofMillis(500).toNanos());
+
+        advance(Duration.ofMillis(499));
+        assertThat(limiter.tryAcquire("client")).isEqualTo(Duration.ofMillis(1).toNanos());
+        advance(Duration.ofMillis(1));
+        assertThat(limiter.tryAcquire("client")).isZero();
+        assertThat(limiter.tryAcquire("client")).isPositive();
+    }
+
+    @Test
+    void keysHaveTheirOwnBuckets() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("busy");
+        }
+        assertThat(limiter.tryAcquire("busy")).isPositive();
+        assertThat(limiter.tryAcquire("quiet")).isZero();
+    }
+
+    @Test
+    void idleBucketsRefillToTheBurstOnlyAndAreSweptOut() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("idle");
+        }
+        limiter.tryAcquire("active");
+        advance(Duration.ofMinutes(1).minusMillis(1));
+        limiter.tryAcquire("active");
+        assertThat(limiter.size()).isEqualTo(2);
+
+        advance(Duration.ofMillis(1));
+        limiter.tryAcquire("active");
+        assertThat(limiter.size()).isEqualTo(1);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("idle")).isZero();
+        }
+        assertThat(limiter.tryAcquire("idle")).isPositive();
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
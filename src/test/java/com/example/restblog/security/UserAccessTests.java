@@ -0,0 +1,89 @@
+package com.example.restblog.security;
+
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import com.example.restblog.errors.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class UserAccessTests {
+
+    private static final Authentication OWNER = user("a@test.com");
+
+    private UserRepository repository;
+    private UserAccess access;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserRepository.class);
+        when(repository.findById(1L)).thenReturn(Optional.of(new User(1, "a@test.com", "a", "hash", User.Role.USER, null, 0)));
+        when(repository.findById(2L)).thenReturn(Optional.empty());
+        access = new UserAccess(repository);
+    }
+
+    @Test
+    void theCheckedUserIsHandedOnWithoutAnotherLookup() {
+        assertThat(access.isOwner(1, OWNER)).isTrue();
+        assertThat(access.isOwner(1, OWNER)).isTrue();
+        User user = access.user(1);
+
+        assertThat(user.getEmail()).isEqualTo("a@test.com");
+        assertThat(access.user(1)).isSameAs(user);
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    void missingUsersAreNotOwnedAndNotFound() {
+        assertThat(access.isOwner(2, OWNER)).isFalse();
+        assertThatThrownBy(() -> access.user(2)).isInstanceOf(EntityNotFoundException.class);
+        verify(repository, times(1)).findById(2L);
+    }
+
+    @Test
+    void ownerRuleCompiles() throws Exception {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<UserAccess> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenAnswer(invocation -> new UserAccess(repository)); // one per request
+        MethodSecurityExpressionHandler handler = new MethodSecurityConfig(provider, mock(ApplicationContext.class)).createExpressionHandler();
+        SpelExpression rule = (SpelExpression) handler.getExpressionParser()
+                .parseExpression("!hasAuthority('USER') || #userAccess.isOwner(#id, authentication)");
+
+        assertThat(ExpressionUtils.evaluateAsBoolean(rule, context(handler, OWNER, 1L))).isTrue();
+        assertThat(rule.compileExpression()).isTrue();
+        assertThat(ExpressionUtils.evaluateAsBoolean(rule, context(handler, OWNER, 1L))).isTrue();
+        assertThat(ExpressionUtils.evaluateAsBoolean(rule, context(handler, user("b@test.com"), 1L))).isFalse();
+        assertThat(ExpressionUtils.evaluateAsBoolean(rule, context(handler, OWNER, 2L))).isFalse();
+    }
+
+    private static EvaluationContext context(MethodSecurityExpressionHandler handler, Authentication authentication, Long id) throws Exception {
+        Target target = new Target();
+        return handler.createEvaluationContext(authentication,
+                new SimpleMethodInvocation(target, Target.class.getMethod("update", Long.class), id));
+    }
+
+    private static Authentication user(String email) {
+        return new UsernamePasswordAuthenticationToken(email, null, List.of(new SimpleGrantedAuthority("USER")));
+    }
+
+    public static class Target {
+        public void update(Long id) {
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.restblog.security;
+
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class UserServiceTests {
+
+    private UserRepository repository;
+    private UserService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserRepository.class);
+        when(repository.findByEmail("a@test.com"))
+                .thenReturn(Optional.of(new User(1, "a@test.com", "a", "hash", User.Role.USER, null, 0)));
+        service = new UserService(repository, new SimpleMeterRegistry(), 100, 300);
+    }
+
+    @Test
+    void repeatedLookupsHitTheCache() {
+        service.loadUserByUsername("a@test.com");
+        service.loadUserByUsername("a@test.com");
+
+        verify(repository, times(1)).findByEmail("a@test.com");
+        assertThat(service.cacheStats().hitCount()).isEqualTo(1);
+        assertThat(service.cacheStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictForcesAReload() {
+        service.loadUserByUsername("a@test.com");
+        service.evict("a@test.com");
+        service.loadUserByUsername("a@test.com");
+
+        verify(repository, times(2)).findByEmail("a@test.com");
+    }
+
+    @Test
+    void aLoadThatOverlapsAnEvictionIsNotCached() {
+        User stale = new User(1, "a@test.com", "a", "old hash", User.Role.USER, null, 0);
+        when(repository.findByEmail("a@test.com")).thenAnswer(invocation -> {
+            service.evict("a@test.com"); // the password changes while the old row is being read
+            return Optional.of(stale);
+        }).thenReturn(Optional.of(new User(1, "a@test.com", "a", "new hash", User.Role.USER, null, 0)));
+
+        service.loadUserByUsername("a@test.com");
+
+        assertThat(service.loadUserByUsername("a@test.com").getPassword()).isEqualTo("new hash");
+    }
+
+    @Test
+    void evictingOneUserDoesNotKeepAnotherOutOfTheCache() {
+        when(repository.findByEmail("b@test.com")).thenAnswer(invocation -> {
+            service.evict("a@test.com"); // someone else's change lands while b is being read
+            return Optional.of(new User(2, "b@test.com", "b", "hash", User.Role.USER, null, 0));
+        });
+
+        service.loadUserByUsername("b@test.com");
+        service.loadUserByUsername("b@test.com");
+
+        verify(repository, times(1)).findByEmail("b@test.com");
+    }
+
+    @Test
+    void erasingCredentialsDoesNotLeakIntoTheCache() {
+        UserDetails first = service.loadUserByUsername("a@test.com");
+        ((CredentialsContainer) first).eraseCredentials();
+
+        assertThat(service.loadUserByUsername("a@test.com").getPassword()).isEqualTo("hash");
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.restblog.web;
+
+import com.example.restblog.data.Post;
+import com.example.restblog.data.PostRepository;
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.WriteListener;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"rate-limit.enabled=false", "batch.max-requests=3"})
+@AutoConfigureMockMvc
+class BatchControllerTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private DispatcherServlet dispatcherServlet;
+
+    @Autowired
+    private ServletContext servletContext;
+
+    private User owner;
+
+    private User admin;
+
+    @BeforeEach
+    void seed() throws ServletException {
+        // MockMvc has a DispatcherServlet of its own; the batch dispatches to the bean, which a container would initialise
+        if (dispatcherServlet.getServletConfig() == null) {
+            dispatcherServlet.init(new MockServletConfig(servletContext, "dispatcherServlet"));
+        }
+        owner = userRepository.save(new User(0, "owner@test.com", "owner", passwordEncoder.encode("pw"), User.Role.USER, null, 0));
+        admin = userRepository.save(new User(0, "admin@test.com", "admin", passwordEncoder.encode("pw"), User.Role.ADMIN, null, 0));
+        postRepository.saveAll(List.of(
+                new Post(0, "first", "one", owner, 0),
+                new Post(0, "second", "two", owner, 0),
+                new Post(0, "third", "three", owner, 0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void answersEachEntryUnderItsKey() throws Exception {
+        JsonNode results = batch(logIn("admin@test.com"), Map.of(
+                "posts", "/api/posts/summaries?limit=2",
+                "owner", "/api/users/" + owner.getId()));
+
+        assertThat(results.at("/posts/status").asInt()).isEqualTo(200);
+        assertThat(results.at("/posts/body/content").size()).isEqualTo(2);
+        assertThat(results.at("/posts/body/content/1/title").asText()).isEqualTo("second");
+        assertThat(results.at("/posts/body/next").isNumber()).isTrue();
+        assertThat(results.at("/owner/status").asInt()).isEqualTo(200);
+        assertThat(results.at("/owner/body/email").asText()).isEqualTo("owner@test.com");
+    }
+
+    @Test
+    void eachEntryIsAuthorizedOnItsOwn() throws Exception {
+        JsonNode results = batch(logIn("owner@test.com"), Map.of(
+                "self", "/api/users/" + owner.getId(),
+                "someoneElse", "/api/users/" + admin.getId(),
+                "adminOnly", "/api/users/cacheStats"));
+
+        assertThat(results.at("/self/status").asInt()).isEqualTo(200);
+        assertThat(results.at("/someoneElse/status").asInt()).isEqualTo(401);
+        assertThat(results.at("/someoneElse/body/email").isMissingNode()).isTrue();
+        assertThat(results.at("/adminOnly/status").asInt()).isEqualTo(401);
+    }
+
+    @Test
+    void failedEntriesCarryTheirOwnStatus() throws Exception {
+        JsonNode results = batch(logIn("admin@test.com"), Map.of(
+                "missing", "/api/users/999999",
+                "outsideTheApi", "/actuator/health",
+                "nested", "/api/batch"));
+
+        assertThat(results.at("/missing/status").asInt()).isEqualTo(404);
+        assertThat(results.at("/missing/body/apierror/status").asText()).isEqualTo("NOT_FOUND");
+        assertThat(results.at("/outsideTheApi/status").asInt()).isEqualTo(400);
+        assertThat(results.at("/outsideTheApi/body").isNull()).isTrue();
+        assertThat(results.at("/nested/status").asInt()).isEqualTo(400);
+    }
+
+    @Test
+    void rejectsBatchesOverTheLimit() throws Exception {
+        Map<String, String> paths = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            paths.put("post" + i, "/api/posts?limit=" + (i + 1));
+        }
+
+        perform(logIn("admin@test.com"), paths).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void subRequestStreamsAnswerNonBlockingListenersRightAway() throws Exception {
+        List<String> events = new ArrayList<>();
+        new BatchSubRequest(new MockHttpServletRequest(), "/api/posts").getInputStream().setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+                events.add("data available");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("all data read");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("read error");
+            }
+        });
+        new BatchSubResponse(new MockHttpServletResponse()).getOutputStream().setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() {
+                events.add("write possible");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("write error");
+            }
+        });
+
+        assertThat(events).containsExactly("all data read", "write possible");
+    }
+
+    private JsonNode batch(String token, Map<String, String> paths) throws Exception {
+        String body = perform(token, paths).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return mapper.readTree(body);
+    }
+
+    private ResultActions perform(String token, Map<String, String> paths) throws Exception {
+        return mvc.perform(post("/api/batch").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(paths)));
+    }
+
+    private String logIn(String email) throws Exception {
+        String client = Base64.getEncoder().encodeToString("rest-blog-client:secret".getBytes(StandardCharsets.US_ASCII));
+        String body = mvc.perform(post("/oauth/token").header(HttpHeaders.AUTHORIZATION, "Basic " + client)
+                        .param("grant_type", "password").param("username", email).param("password", "pw"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(body).get("access_token").asText();
+    }
+}
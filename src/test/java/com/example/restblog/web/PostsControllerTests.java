@@ -0,0 +1,228 @@
+package com.example.restblog.web;
+
+import com.example.restblog.data.Post;
+import com.example.restblog.data.PostRepository;
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "rate-limit.enabled=false",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.restblog.web.PostsControllerTests$PostInserts"
+})
+@AutoConfigureMockMvc
+class PostsControllerTests {
+
+    private static final int POSTS = 5;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private User author;
+
+    private List<Post> posts;
+
+    @BeforeEach
+    void seed() {
+        author = userRepository.save(new User(0, "author@test.com", "author", passwordEncoder.encode("pw"), User.Role.USER, null, 0));
+        User other = userRepository.save(new User(0, "other@test.com", "other", passwordEncoder.encode("pw"), User.Role.USER, null, 0));
+        List<Post> batch = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            batch.add(new Post(0, "title " + i, "content " + i, i < POSTS - 1 ? author : other, 0));
+        }
+        posts = postRepository.saveAll(batch);
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void listingEtagCoversOnlyThePageServed() throws Exception {
+        String etag = listing("/api/posts?limit=2", null).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        listing("/api/posts?limit=2", etag).andExpect(status().isNotModified());
+
+        // Past the end of the page: the last post and its author
+        Post last = posts.get(POSTS - 1);
+        last.setTitle("edited");
+        postRepository.save(last);
+        rename(last.getUser().getId());
+        listing("/api/posts?limit=2", etag).andExpect(status().isNotModified());
+        listing("/api/posts/summaries?limit=2", etag).andExpect(status().isNotModified());
+
+        // An author shown on the page
+        rename(author.getId());
+        listing("/api/posts?limit=2", etag).andExpect(status().isOk());
+    }
+
+    @Test
+    void listingEtagChangesWhenAPostOnThePageIsDeleted() throws Exception {
+        String etag = listing("/api/posts?limit=2", null).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        postRepository.deleteById(posts.get(1).getId());
+
+        listing("/api/posts?limit=2", etag).andExpect(status().isOk());
+    }
+
+    @Test
+    void onlyTheAuthorMayPatchAPost() throws Exception {
+        String token = logIn("other@test.com");
+        long othersPost = posts.get(POSTS - 1).getId();
+        long authorsPost = posts.get(0).getId();
+
+        patchTitle(authorsPost, token).andExpect(status().isUnauthorized());
+        patchTitle(othersPost + 1000, token).andExpect(status().isUnauthorized());
+        patchTitle(othersPost, token).andExpect(status().isOk());
+
+        assertThat(postRepository.findById(authorsPost).orElseThrow().getTitle()).isEqualTo("title 0");
+        assertThat(postRepository.findById(othersPost).orElseThrow().getTitle()).isEqualTo("patched");
+    }
+
+    @Test
+    void bulkPostsAreWrittenInChunksOfOneBatchEach() throws Exception {
+        PostInserts.prepared.set(0);
+
+        bulk(bulkPost("one") + bulkPost("two") + bulkPost("three") + bulkPost("four") + bulkPost("five"), 2)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(5))
+                .andExpect(jsonPath("$.chunks").value(3));
+
+        // Batched inserts reuse one prepared statement per chunk
+        assertThat(PostInserts.prepared).hasValue(3);
+        assertThat(postRepository.count()).isEqualTo(POSTS + 5);
+    }
+
+    @Test
+    void anInvalidPostMidStreamKeepsTheChunksBeforeIt() throws Exception {
+        bulk(bulkPost("one") + bulkPost("two") + bulkPost("three") + "{\"content\":\"untitled\",\"user\":{\"id\":" + author.getId() + "}}\n" + bulkPost("five"), 2)
+                .andExpect(status().isBadRequest());
+
+        assertThat(postRepository.findAll()).extracting(Post::getTitle).contains("one", "two").doesNotContain("three", "five");
+    }
+
+    @Test
+    void aMalformedLineMidStreamIsABadRequest() throws Exception {
+        bulk(bulkPost("one") + bulkPost("two") + "{\"title\":\n" + bulkPost("four"), 2)
+                .andExpect(status().isBadRequest());
+
+        assertThat(postRepository.findAll()).extracting(Post::getTitle).contains("one", "two").doesNotContain("four");
+    }
+
+    @Test
+    void aPostByAnUnknownAuthorMidStreamIsNotFound() throws Exception {
+        String orphan = "{\"title\":\"orphan\",\"content\":\"bulk\",\"user\":{\"id\":" + (author.getId() + 1000) + "}}\n";
+        bulk(bulkPost("one") + bulkPost("two") + bulkPost("three") + orphan, 2)
+                .andExpect(status().isNotFound());
+
+        assertThat(postRepository.findAll()).extracting(Post::getTitle).contains("one", "two").doesNotContain("three", "orphan");
+    }
+
+    @Test
+    void viewsOfAMissingPostAreNotFound() throws Exception {
+        long postId = posts.get(0).getId();
+        mvc.perform(post("/api/posts/" + postId + "/views").accept(MediaType.APPLICATION_JSON)).andExpect(status().isNoContent());
+        mvc.perform(get("/api/posts/" + postId + "/views").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.views").value(1));
+
+        long missing = posts.get(POSTS - 1).getId() + 1000;
+        mvc.perform(post("/api/posts/" + missing + "/views").accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotFound());
+        mvc.perform(get("/api/posts/" + missing + "/views").accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotFound());
+    }
+
+    private String bulkPost(String title) {
+        return "{\"title\":\"" + title + "\",\"content\":\"bulk\",\"user\":{\"id\":" + author.getId() + "}}\n";
+    }
+
+    private ResultActions bulk(String ndjson, int chunkSize) throws Exception {
+        return mvc.perform(post("/api/posts/bulk").param("chunkSize", Integer.toString(chunkSize))
+                .accept(MediaType.APPLICATION_JSON).contentType("application/x-ndjson").content(ndjson));
+    }
+
+    private ResultActions patchTitle(long postId, String token) throws Exception {
+        return mvc.perform(patch("/api/posts/" + postId).header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .accept(MediaType.APPLICATION_JSON).contentType(MergePatch.MEDIA_TYPE).content("{\"title\":\"patched\"}"));
+    }
+
+    private String logIn(String email) throws Exception {
+        String client = Base64.getEncoder().encodeToString("rest-blog-client:secret".getBytes(StandardCharsets.US_ASCII));
+        String body = mvc.perform(post("/oauth/token").header(HttpHeaders.AUTHORIZATION, "Basic " + client)
+                        .param("grant_type", "password").param("username", email).param("password", "pw"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(body).get("access_token").asText();
+    }
+
+    private void rename(long userId) {
+        User user = userRepository.findById(userId).orElseThrow();
+        user.setUsername("renamed");
+        userRepository.save(user);
+    }
+
+    private ResultActions listing(String url, String ifNoneMatch) throws Exception {
+        MockHttpServletRequestBuilder request = get(url).accept(MediaType.APPLICATION_JSON);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mvc.perform(request);
+    }
+
+    /**
+     * Counts the post inserts Hibernate prepares. A JDBC batch is one prepared statement, so with batching there is
+     * one per flush rather than one per post.
+     */
+    public static class PostInserts implements StatementInspector {
+
+        static final AtomicInteger prepared = new AtomicInteger();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.startsWith("insert into posts ")) {
+                prepared.incrementAndGet();
+            }
+            return sql;
+        }
+    }
+}
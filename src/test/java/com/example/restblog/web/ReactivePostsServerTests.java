@@ -0,0 +1,98 @@
+package com.example.restblog.web;
+
+import com.example.restblog.data.Post;
+import com.example.restblog.data.PostRepository;
+import com.example.restblog.data.PostRow;
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The JDBC and R2DBC URLs name the same in-memory H2 database, so rows written through JPA are visible to R2DBC
+@SpringBootTest(properties = {
+        "reactive.server.enabled=true",
+        "reactive.server.port=0",
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive",
+        "spring.r2dbc.username=sa",
+        "posts.page.default-limit=5",
+        "posts.page.max-limit=10"
+})
+class ReactivePostsServerTests {
+
+    private static final int POSTS = 25;
+
+    @Autowired
+    private ReactivePostsServer server;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private WebTestClient client;
+
+    private List<Post> posts;
+
+    @BeforeEach
+    void seed() {
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+        User author = userRepository.save(new User(0, "reactive@test.com", "reactive", "pw", User.Role.USER, null, 0));
+        List<Post> batch = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            batch.add(new Post(0, "title " + i, "content " + i, author, 0));
+        }
+        posts = postRepository.saveAll(batch);
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.getPort()).build();
+    }
+
+    @Test
+    void streamsADefaultPageOfPostsWithAuthorsAsNdjson() {
+        List<PostRow> rows = client.get().uri("/api/posts").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(PostRow.class).getResponseBody().collectList().block();
+
+        assertThat(rows).hasSize(5);
+        assertThat(rows).extracting(PostRow::getAuthor).containsOnly("reactive");
+        assertThat(rows.get(0).getTitle()).isEqualTo("title 0");
+        assertThat(rows.get(0).getUserId()).isEqualTo(posts.get(0).getUser().getId());
+    }
+
+    @Test
+    void resumesAfterTheLastIdSeen() {
+        long after = posts.get(9).getId();
+
+        List<PostRow> rows = client.get().uri("/api/posts?after={after}&limit=5", after).exchange()
+                .expectStatus().isOk()
+                .returnResult(PostRow.class).getResponseBody().collectList().block();
+
+        assertThat(rows).extracting(PostRow::getTitle).containsExactly("title 10", "title 11", "title 12", "title 13", "title 14");
+    }
+
+    @Test
+    void capsTheLimit() {
+        List<PostRow> rows = client.get().uri("/api/posts?limit={limit}", Integer.MAX_VALUE).exchange()
+                .expectStatus().isOk()
+                .returnResult(PostRow.class).getResponseBody().collectList().block();
+
+        assertThat(rows).hasSize(10);
+    }
+
+    @Test
+    void rejectsMalformedCursorAndLimit() {
+        client.get().uri("/api/posts?after=abc").exchange().expectStatus().isBadRequest();
+        client.get().uri("/api/posts?limit=ten").exchange().expectStatus().isBadRequest();
+    }
+}
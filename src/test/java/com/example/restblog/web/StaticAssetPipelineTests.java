@@ -0,0 +1,77 @@
+package com.example.restblog.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaticAssetPipelineTests {
+
+    private static final String IMPORT_MAP = "<script type=\"importmap\">";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void indexLoadsTheHashedEntryPointThroughAnImportMap() throws IOException {
+        String html = new StaticAssetPipeline(mapper, true).indexHtml();
+
+        JsonNode imports = importMap(html).get("imports");
+        String main = imports.get("/js/main.js").asText();
+        assertThat(main).matches("/js/main\\.[0-9a-f]{12}\\.js");
+        assertThat(imports.get("/js/views/PostIndex.js").asText()).matches("/js/views/PostIndex\\.[0-9a-f]{12}\\.js");
+        assertThat(html).contains("<script type=\"module\" src=\"" + main + "\"></script>");
+        assertThat(html.indexOf(IMPORT_MAP)).isLessThan(html.indexOf("type=\"module\""));
+        assertThat(html).contains("src=\"https://code.jquery.com/jquery-3.6.0.min.js\"");
+    }
+
+    @Test
+    void everyModuleScriptIsRewrittenAndTheMapWrittenOnce() {
+        String html = "<script defer type=\"module\" data-x=\"1\" src=\"/js/a.js\"></script>\n"
+                + "<script type=\"module\" src=\"js/b.js\"></script>\n"
+                + "<script type=\"module\" src=\"js/unknown.js\"></script>\n"
+                + "<script src=\"js/a.js\"></script>";
+
+        String rewritten = StaticAssetPipeline.rewriteIndex(html, Map.of("/js/a.js", "/js/a.111.js", "/js/b.js", "/js/b.222.js"), "{}");
+
+        assertThat(rewritten).startsWith(IMPORT_MAP + "{}</script>\n    <script defer type=\"module\" data-x=\"1\" src=\"/js/a.111.js\">");
+        assertThat(rewritten).containsOnlyOnce(IMPORT_MAP);
+        assertThat(rewritten).contains("<script type=\"module\" src=\"/js/b.222.js\">");
+        assertThat(rewritten).contains("<script type=\"module\" src=\"/js/unknown.js\">");
+        assertThat(rewritten).endsWith("<script src=\"js/a.js\"></script>");
+    }
+
+    @Test
+    void hashedModulesAreImmutableCopiesWithAGzippedVariant() throws IOException {
+        StaticAssetPipeline pipeline = new StaticAssetPipeline(mapper, true);
+        String hashed = importMap(pipeline.indexHtml()).at("/imports/~1js~1router.js").asText();
+
+        StaticAssetPipeline.Asset plain = pipeline.asset("/js/router.js");
+        StaticAssetPipeline.Asset immutable = pipeline.asset(hashed);
+        assertThat(plain.immutable).isFalse();
+        assertThat(immutable.immutable).isTrue();
+        assertThat(immutable.content).isEqualTo(plain.content);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(immutable.gzipped))) {
+            assertThat(StreamUtils.copyToByteArray(in)).isEqualTo(plain.content);
+        }
+    }
+
+    @Test
+    void withoutFingerprintingTheIndexIsLeftAlone() throws IOException {
+        StaticAssetPipeline pipeline = new StaticAssetPipeline(mapper, false);
+
+        assertThat(pipeline.indexHtml()).doesNotContain(IMPORT_MAP).contains("<script type=\"module\" src=\"js/main.js\"></script>");
+        assertThat(pipeline.asset("/js/main.js").immutable).isFalse();
+    }
+
+    private JsonNode importMap(String html) throws IOException {
+        int start = html.indexOf(IMPORT_MAP) + IMPORT_MAP.length();
+        return mapper.readTree(html.substring(start, html.indexOf("</script>", start)));
+    }
+}
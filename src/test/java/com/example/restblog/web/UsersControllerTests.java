@@ -0,0 +1,110 @@
+package com.example.restblog.web;
+
+import com.example.restblog.data.User;
+import com.example.restblog.data.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "rate-limit.enabled=false")
+@AutoConfigureMockMvc
+class UsersControllerTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private User owner;
+
+    @BeforeEach
+    void seed() {
+        owner = userRepository.save(new User(0, "owner@test.com", "owner", passwordEncoder.encode("pw"), User.Role.USER, null, 0));
+        userRepository.save(new User(0, "admin@test.com", "admin", passwordEncoder.encode("pw"), User.Role.ADMIN, null, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void anOwnerCannotPatchTheirRole() throws Exception {
+        String token = logIn("owner@test.com");
+
+        mvc.perform(patch("/api/users/" + owner.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .accept(MediaType.APPLICATION_JSON).contentType(MergePatch.MEDIA_TYPE).content("{\"role\":\"ADMIN\"}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(patch("/api/users/" + owner.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .accept(MediaType.APPLICATION_JSON).contentType(MergePatch.MEDIA_TYPE).content("{\"username\":\"renamed\"}"))
+                .andExpect(status().isOk());
+
+        User user = userRepository.findById(owner.getId()).orElseThrow();
+        assertThat(user.getRole()).isEqualTo(User.Role.USER);
+        assertThat(user.getUsername()).isEqualTo("renamed");
+    }
+
+    @Test
+    void anOwnerCannotPutTheirRole() throws Exception {
+        mvc.perform(put("/api/users/" + owner.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer " + logIn("owner@test.com"))
+                        .accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"owner@test.com\",\"username\":\"renamed\",\"role\":\"ADMIN\"}"))
+                .andExpect(status().isOk());
+
+        User user = userRepository.findById(owner.getId()).orElseThrow();
+        assertThat(user.getRole()).isEqualTo(User.Role.USER);
+        assertThat(user.getUsername()).isEqualTo("renamed");
+    }
+
+    @Test
+    void anAdminCanChangeRoles() throws Exception {
+        mvc.perform(patch("/api/users/" + owner.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer " + logIn("admin@test.com"))
+                        .accept(MediaType.APPLICATION_JSON).contentType(MergePatch.MEDIA_TYPE).content("{\"role\":\"ADMIN\"}"))
+                .andExpect(status().isOk());
+
+        assertThat(userRepository.findById(owner.getId()).orElseThrow().getRole()).isEqualTo(User.Role.ADMIN);
+    }
+
+    @Test
+    void onlyAdminsRebuildTheSearchIndex() throws Exception {
+        mvc.perform(post("/api/users/search/rebuild").header(HttpHeaders.AUTHORIZATION, "Bearer " + logIn("owner@test.com"))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(post("/api/users/search/rebuild").header(HttpHeaders.AUTHORIZATION, "Bearer " + logIn("admin@test.com"))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+    }
+
+    private String logIn(String email) throws Exception {
+        String client = Base64.getEncoder().encodeToString("rest-blog-client:secret".getBytes(StandardCharsets.US_ASCII));
+        String body = mvc.perform(post("/oauth/token").header(HttpHeaders.AUTHORIZATION, "Basic " + client)
+                        .param("grant_type", "password").param("username", email).param("password", "pw"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(body).get("access_token").asText();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.restblog.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ViewControllerTests {
+
+    private StaticAssetPipeline pipeline;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pipeline = new StaticAssetPipeline(new ObjectMapper(), true);
+        mvc = MockMvcBuilders.standaloneSetup(new ViewController(pipeline)).build();
+    }
+
+    @Test
+    void gzipIsServedWhenAccepted() throws Exception {
+        module("gzip, deflate, br").andExpect(gzipped());
+        module("deflate;q=1.0, GZIP;q=0.5").andExpect(gzipped());
+        module("*").andExpect(gzipped());
+    }
+
+    @Test
+    void gzipIsNotServedWhenRefused() throws Exception {
+        module(null).andExpect(identity());
+        module("identity").andExpect(identity());
+        module("gzip;q=0").andExpect(identity());
+        module("gzip; q=0.0, deflate").andExpect(identity());
+        module("*, gzip;q=0").andExpect(identity());
+        module("*;q=0").andExpect(identity());
+    }
+
+    @Test
+    void unhashedModulesAreRevalidated() throws Exception {
+        String etag = module("gzip").andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/js/router.js").header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/js/router.js").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void indexIsRevalidatedAgainstItsEtag() throws Exception {
+        mvc.perform(get("/posts"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(content().string(containsString("<script type=\"importmap\">")));
+        mvc.perform(get("/").header(HttpHeaders.IF_NONE_MATCH, pipeline.indexEtag()))
+                .andExpect(status().isNotModified());
+    }
+
+    private ResultActions module(String acceptEncoding) throws Exception {
+        return acceptEncoding == null
+                ? mvc.perform(get("/js/router.js"))
+                : mvc.perform(get("/js/router.js").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+    }
+
+    private static ResultMatcher gzipped() {
+        return result -> {
+            header().string(HttpHeaders.CONTENT_ENCODING, "gzip").match(result);
+            header().string(HttpHeaders.ETAG, endsWith("-gz\"")).match(result);
+            header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).match(result);
+        };
+    }
+
+    private static ResultMatcher identity() {
+        return result -> {
+            header().doesNotExist(HttpHeaders.CONTENT_ENCODING).match(result);
+            header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).match(result);
+        };
+    }
+}